@@ -0,0 +1,45 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import viewmodel.LevelEditorCanvas;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link LevelEditorCanvas.Brush#fromChar(char)} over the characters of a synthetic map, as when the level editor
+ * loads a map. Only the enum is used, so the level editor canvas and JavaFX are never initialized.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BrushBenchmark {
+    private static final int CHARS = 1024;
+
+    private char[] chars;
+
+    @Setup
+    public void readChars() {
+        chars = Levels.generate(64).replace("\n", "").substring(0, CHARS).toCharArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CHARS)
+    public void fromChar(Blackhole blackhole) {
+        for (char c : chars)
+            blackhole.consume(LevelEditorCanvas.Brush.fromChar(c));
+    }
+}
@@ -0,0 +1,73 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+
+/**
+ * Resolves the level parameter of the benchmarks to a map file. A level is either the name of a bundled map in
+ * src/assets/maps, or synthetic-N for a generated N x N map, which is written to a temporary file once per JVM.
+ * <p>
+ * The bundled maps are looked up in the directory given by the sokoban.maps system property, or else in
+ * src/assets/maps or ../src/assets/maps, so the benchmarks can be run from the project or the benchmarks directory.
+ */
+final class Levels {
+    private static final String SYNTHETIC = "synthetic-";
+    private static final HashMap<String, Path> synthetic = new HashMap<>();
+
+    private Levels() {
+    }
+
+    /**
+     * @return Whether the level is a generated one, synthetic-N
+     */
+    static boolean isSynthetic(String level) {
+        return level.startsWith(SYNTHETIC);
+    }
+
+    static synchronized Path path(String level) throws IOException {
+        if (isSynthetic(level)) {
+            Path path = synthetic.get(level);
+            if (path == null) {
+                int size = Integer.parseInt(level.substring(SYNTHETIC.length()));
+                path = Files.createTempFile("sokoban-" + level, ".txt");
+                path.toFile().deleteOnExit();
+                Files.write(path, generate(size).getBytes(StandardCharsets.US_ASCII));
+                synthetic.put(level, path);
+            }
+            return path;
+        }
+        String dir = System.getProperty("sokoban.maps");
+        if (dir == null)
+            dir = Files.isDirectory(Paths.get("src/assets/maps")) ? "src/assets/maps" : "../src/assets/maps";
+        return Paths.get(dir, level);
+    }
+
+    /**
+     * A square room with a pillar every 8 cells, a crate next to every pillar and a destination for every crate,
+     * with the player in the middle
+     */
+    static String generate(int size) {
+        StringBuilder text = new StringBuilder(size * (size + 1) + 16);
+        text.append(size).append('\n').append(size).append('\n');
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                char ch = '.';
+                if (r == 0 || c == 0 || r == size - 1 || c == size - 1 || (r % 8 == 0 && c % 8 == 0))
+                    ch = '#';
+                else if (r % 8 == 4 && c % 8 == 4)
+                    ch = 'c';
+                else if (r % 8 == 4 && c % 8 == 6)
+                    ch = 'C';
+                else if (r == size / 2 + 1 && c == size / 2 + 1)
+                    ch = '@';
+                text.append(ch);
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+}
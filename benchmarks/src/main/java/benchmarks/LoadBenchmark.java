@@ -0,0 +1,85 @@
+package benchmarks;
+
+import model.GameLevel;
+import model.Map.Map;
+import model.Map.MapParser;
+import model.Map.MapSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading levels: {@link GameLevel#loadMap(String)} as the game does it, which hits the level cache after the first
+ * call, a full parse of the file contents, and the two ways of initializing a {@link Map}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoadBenchmark {
+    @Param({"01-easy.txt", "06-normal.txt", "13-extreme.txt", "synthetic-256", "synthetic-1024"})
+    public String level;
+
+    private String filename;
+    private byte[] data;
+    private MapSnapshot snapshot;
+    private int rows;
+    private int cols;
+    private char[][] rep;
+    private GameLevel gameLevel;
+    private Map map;
+
+    @Setup
+    public void readLevel() throws Exception {
+        Path path = Levels.path(level);
+        filename = path.toString();
+        data = Files.readAllBytes(path);
+        snapshot = MapParser.parse(data).snapshot();
+        //the rows and columns are the first two tokens, the rows of the map follow on separate lines
+        String[] lines = new String(data).split("\\s*\\n");
+        rows = Integer.parseInt(lines[0].trim());
+        cols = Integer.parseInt(lines[1].trim());
+        rep = new char[rows][];
+        for (int r = 0; r < rows; r++)
+            rep[r] = lines[r + 2].substring(0, cols).toCharArray();
+        gameLevel = new GameLevel();
+        map = new Map();
+    }
+
+    @Benchmark
+    public Map loadMap() throws Exception {
+        gameLevel.loadMap(filename);
+        return gameLevel.getMap();
+    }
+
+    @Benchmark
+    public Map parse() throws Exception {
+        return MapParser.parse(data);
+    }
+
+    @Benchmark
+    public Map initializeFromSnapshot() {
+        map.initialize(snapshot);
+        return map;
+    }
+
+    @Benchmark
+    public Map initializeFromChars() throws Exception {
+        map.initialize(rows, cols, rep);
+        return map;
+    }
+}
@@ -0,0 +1,133 @@
+package benchmarks;
+
+import model.GameLevel;
+import model.Map.Map;
+import model.Map.MapParser;
+import model.Map.MapSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves and win/deadlock checks. The player replays the solver's solution of the level, or on the synthetic maps a
+ * pseudo-random walk which keeps pushing crates, and then undoes it move by move. Every move succeeds, and the board
+ * ends up back where it started without being reloaded. The checks are made on positions reached along the walk,
+ * up to the solved one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+    private static final int WALK_LENGTH = 1 << 12;
+    private static final int NUM_POSITIONS = 16;
+
+    @Param({"01-easy.txt", "06-normal.txt", "13-extreme.txt", "synthetic-256", "synthetic-1024"})
+    public String level;
+
+    private final GameLevel[] positions = new GameLevel[NUM_POSITIONS];
+    private Map.Direction[] walk;
+    private char[] keys;
+    private boolean[] pushed;
+    private String filename;
+    private MapSnapshot snapshot;
+    private Map map;
+    private GameLevel gameLevel;
+    private int step;
+
+    @Setup(Level.Trial)
+    public void loadLevel() throws Exception {
+        filename = Levels.path(level).toString();
+        snapshot = MapParser.parse(Levels.path(level)).snapshot();
+        //the synthetic maps are far too large for the solver
+        walk = Levels.isSynthetic(level) ? null : Walks.solution(map(snapshot));
+        if (walk == null)
+            walk = Walks.generate(map(snapshot), WALK_LENGTH, new Random(3021));
+        keys = Walks.keys(walk);
+        pushed = new boolean[walk.length];
+        Map replay = map(snapshot);
+        for (int i = 0; i < walk.length; i++) {
+            replay.movePlayer(walk[i]);
+            pushed[i] = replay.isLastMovePush();
+        }
+        //positions spread along the walk, up to its end
+        for (int k = 0; k < NUM_POSITIONS; k++) {
+            positions[k] = new GameLevel();
+            positions[k].loadMap(filename);
+            for (int i = 0; i < (k + 1) * walk.length / NUM_POSITIONS; i++)
+                positions[k].makeMove(keys[i]);
+        }
+        map = new Map();
+        gameLevel = new GameLevel();
+    }
+
+    private static Map map(MapSnapshot snapshot) {
+        Map map = new Map();
+        map.initialize(snapshot);
+        return map;
+    }
+
+    @Setup(Level.Iteration)
+    public void restart() throws Exception {
+        map.initialize(snapshot);
+        gameLevel.loadMap(filename);
+        step = 0;
+    }
+
+    /**
+     * One move along the walk, or one move undone on the way back
+     */
+    @Benchmark
+    public boolean movePlayer() {
+        int i = nextStep();
+        if (i < walk.length)
+            return map.movePlayer(walk[i]);
+        int j = 2 * walk.length - 1 - i;
+        map.undoMove(walk[j], pushed[j]);
+        return true;
+    }
+
+    /**
+     * One key along the walk, or one {@link GameLevel#undo()} on the way back
+     */
+    @Benchmark
+    public boolean makeMove() {
+        int i = nextStep();
+        if (i < walk.length)
+            return gameLevel.makeMove(keys[i]);
+        return gameLevel.undo();
+    }
+
+    /**
+     * @return The index of the next move in the round trip of the walk and back
+     */
+    private int nextStep() {
+        int i = step;
+        step = i + 1 == 2 * walk.length ? 0 : i + 1;
+        return i;
+    }
+
+    @Benchmark
+    public boolean isWin() {
+        return positions[step++ & (NUM_POSITIONS - 1)].isWin();
+    }
+
+    @Benchmark
+    public boolean isDeadlocked() {
+        return positions[step++ & (NUM_POSITIONS - 1)].isDeadlocked();
+    }
+}
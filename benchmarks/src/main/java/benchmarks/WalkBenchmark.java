@@ -0,0 +1,64 @@
+package benchmarks;
+
+import model.GameLevel;
+import model.Map.Map;
+import model.Map.MapParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Click-to-walk path finding from the player in the middle of a synthetic room to a cell the given number of rows
+ * and columns away, i.e. twice that many steps: 16 is about a click inside the visible part of the map, 500 the
+ * corner of a 1024 x 1024 room. walkTo also applies the moves, then undoes them.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WalkBenchmark {
+    @Param({"synthetic-256", "synthetic-1024"})
+    public String level;
+
+    @Param({"16", "120", "500"})
+    public int distance;
+
+    private Map map;
+    private GameLevel gameLevel;
+    private int targetR;
+    private int targetC;
+
+    @Setup
+    public void loadLevel() throws Exception {
+        map = MapParser.parse(Levels.path(level));
+        gameLevel = new GameLevel();
+        gameLevel.loadMap(Levels.path(level).toString());
+        targetR = Math.min(map.getPlayerR() + distance, map.getRows() - 2);
+        targetC = Math.min(map.getPlayerC() + distance, map.getCols() - 2);
+        //step off pillars and crates
+        while (!map.isOccupiableAndNotOccupiedWithCrate(targetR, targetC))
+            targetC--;
+    }
+
+    @Benchmark
+    public Map.Direction[] findWalk() {
+        return map.findWalk(targetR, targetC);
+    }
+
+    @Benchmark
+    public int walkTo() {
+        return gameLevel.undo(gameLevel.walkTo(targetR, targetC));
+    }
+}
@@ -0,0 +1,91 @@
+package benchmarks;
+
+import model.Map.Map;
+import model.Solver.Solver;
+import model.Solver.SolverResult;
+
+import java.util.Random;
+
+/**
+ * Walks in which every move succeeds, so that a benchmark replaying one measures moves and pushes rather than the
+ * player bumping into walls and blocked crates
+ */
+final class Walks {
+    //the wasd keys of the directions, which are in the order up, down, left, right
+    private static final char[] KEYS = {'w', 's', 'a', 'd'};
+    private static final Map.Direction[] DIRECTIONS = Map.Direction.values();
+
+    private Walks() {
+    }
+
+    /**
+     * Moves the player along a new walk. At every step the directions are tried starting from a random one: a push
+     * which does not deadlock the map is taken right away, otherwise the first direction which walks, preferring
+     * not to step straight back, which always succeeds since the cell the player came from is empty. Avoiding
+     * deadlocks keeps crates movable, so the walk goes on pushing them back and forth.
+     *
+     * @param map    The map to walk on, which is left at the end of the walk
+     * @param length The number of moves
+     * @param random The source of the directions
+     * @return The directions of the walk in order
+     */
+    static Map.Direction[] generate(Map map, int length, Random random) {
+        Map.Direction[] walk = new Map.Direction[length];
+        int back = -1;
+        for (int i = 0; i < length; i++) {
+            int first = random.nextInt(4);
+            int d = -1;
+            int step = -1;
+            for (int k = 0; k < 4 && d < 0; k++) {
+                int candidate = (first + k) & 3;
+                if (!map.movePlayer(DIRECTIONS[candidate]))
+                    continue;
+                boolean pushed = map.isLastMovePush();
+                if (pushed && !map.isDeadlocked()) {
+                    d = candidate;
+                } else {
+                    map.undoMove(DIRECTIONS[candidate], pushed);
+                    if (!pushed && (step < 0 || step == back))
+                        step = candidate;
+                }
+            }
+            if (d < 0) {
+                if (step < 0)
+                    throw new IllegalStateException("The player cannot move");
+                d = step;
+                map.movePlayer(DIRECTIONS[d]);
+            }
+            walk[i] = DIRECTIONS[d];
+            //up and down, left and right are next to each other
+            back = d ^ 1;
+        }
+        return walk;
+    }
+
+    /**
+     * @param map The map to solve, which is not modified
+     * @return The directions of the solver's solution, or null if it finds none within a few seconds or the map is
+     * already solved
+     */
+    static Map.Direction[] solution(Map map) {
+        SolverResult result = new Solver(map).setTimeBudgetMillis(10_000L).solve();
+        if (!result.isSolved() || result.getNumMoves() == 0)
+            return null;
+        String solution = result.getSolution();
+        String keys = new String(KEYS);
+        Map.Direction[] walk = new Map.Direction[solution.length()];
+        for (int i = 0; i < walk.length; i++)
+            walk[i] = DIRECTIONS[keys.indexOf(solution.charAt(i))];
+        return walk;
+    }
+
+    /**
+     * @return The wasd keys of the directions
+     */
+    static char[] keys(Map.Direction[] walk) {
+        char[] keys = new char[walk.length];
+        for (int i = 0; i < walk.length; i++)
+            keys[i] = KEYS[walk[i].ordinal()];
+        return keys;
+    }
+}
@@ -0,0 +1,13 @@
+package model.Exceptions;
+
+/**
+ * Thrown when the map file does not follow the map file format, e.g. a missing header or a row that is too short
+ */
+public class MalformedMapException extends InvalidMapException {
+    /**
+     * @param s The exception message
+     */
+    public MalformedMapException(String s) {
+        super(s);
+    }
+}
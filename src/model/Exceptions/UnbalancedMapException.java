@@ -0,0 +1,13 @@
+package model.Exceptions;
+
+/**
+ * Thrown when the number of crates on the map differs from the number of destination tiles
+ */
+public class UnbalancedMapException extends InvalidMapException {
+    /**
+     * @param s The exception message
+     */
+    public UnbalancedMapException(String s) {
+        super(s);
+    }
+}
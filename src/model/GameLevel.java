@@ -1,83 +1,151 @@
 package model;
 
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
 import model.Exceptions.InvalidMapException;
 import model.Map.Map;
-import model.Map.Occupant.Crate;
-import model.Map.Occupiable.DestTile;
+import model.Map.MapParser;
+import model.Map.MapSnapshot;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 /**
  * A class that loads, stores, modifies, and keeps track of the game map win/deadlock condition. Also keeps tracks
  * of information about this current level, e.g. how many moves the player has made.
+ * <p>
+ * The counters are plain fields, so the level can be played headless at full speed; user interfaces register a
+ * {@link Listener} to be told when they change.
  */
 public class GameLevel {
+    private static final Map.Direction[] DIRECTIONS = Map.Direction.values();
 
-    private final IntegerProperty numPushes = new SimpleIntegerProperty(0);
+    private static final Listener[] NO_LISTENERS = new Listener[0];
+
+    private final MoveLog moveLog = new MoveLog();
+    private Listener[] listeners = NO_LISTENERS;
     private Map map;
+    private int numPushes;
+
+    /**
+     * Notified after the counters of a level changed, i.e. after every move, undo, redo and load, on the thread
+     * which made the change
+     */
+    public interface Listener {
+        void countersChanged(GameLevel level);
+    }
+
+    public void addListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    public void removeListener(Listener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                Listener[] rest = new Listener[listeners.length - 1];
+                System.arraycopy(listeners, 0, rest, 0, i);
+                System.arraycopy(listeners, i + 1, rest, i, rest.length - i);
+                listeners = rest;
+                return;
+            }
+        }
+    }
 
-    public IntegerProperty numPushesProperty() {
+    private void fireCountersChanged() {
+        for (Listener listener : listeners)
+            listener.countersChanged(this);
+    }
+
+    /**
+     * @return The number of moves made in the level so far
+     */
+    public int getNumPushes() {
         return numPushes;
     }
 
+    /**
+     * @return The number of crates currently on destination tiles
+     */
+    public int getNumCratesOnDest() {
+        return map != null ? map.getNumCratesOnDest() : 0;
+    }
+
+    public int getNumDestTiles() {
+        return map != null ? map.getNumDestTiles() : 0;
+    }
+
     public Map getMap() {
         return map;
     }
 
     /**
-     * Loads and reads the map line by line, instantiates and initializes map
+     * Instantiates and initializes map from the level file. Parsed levels are kept in {@link LevelCache}, so
+     * loading the same unchanged file again, e.g. on restart, does not read it from disk.
      *
      * @param filename the map text filename
      * @throws InvalidMapException when the map is invalid
      */
     public void loadMap(String filename) throws InvalidMapException {
-        File f = new File(filename);
-        try (Scanner reader = new Scanner(f)) {
-            int numRows = reader.nextInt();
-            int numCols = reader.nextInt();
-            reader.nextLine();
-
-            char[][] rep = new char[numRows][numCols];
-            for (int r = 0; r < numRows; r++) {
-                String row = reader.nextLine();
-                for (int c = 0; c < numCols; c++) {
-                    rep[r][c] = row.charAt(c);
-                }
-            }
+        try {
+            load(LevelCache.getInstance().get(filename));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-            map = new Map();
-            map.initialize(numRows, numCols, rep);
-        } catch (FileNotFoundException e) {
+    /**
+     * Instantiates and initializes map from a level inside a pack. Only this level is read from the pack file.
+     *
+     * @param level the level in the pack
+     * @throws InvalidMapException when the map is invalid
+     */
+    public void loadMap(LevelPack.Entry level) throws InvalidMapException {
+        try {
+            load(LevelCache.getInstance().get(level));
+        } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * @return Whether or not the win condition has been satisfied
+     * Replaces the map with a new one restored from the snapshot, e.g. a level parsed on another thread
+     */
+    void load(MapSnapshot snapshot) {
+        map = new Map();
+        map.initialize(snapshot);
+        moveLog.clear();
+        numPushes = 0;
+        fireCountersChanged();
+    }
+
+    /**
+     * Reads the map file, instantiates and initializes a new map
+     *
+     * @param filename the map text filename
+     * @return The map in its initial state
+     * @throws InvalidMapException when the map is invalid
+     * @throws IOException when the file cannot be read
+     */
+    static Map readMap(String filename) throws InvalidMapException, IOException {
+        return MapParser.parse(Paths.get(filename));
+    }
+
+    /**
+     * @return Whether or not the win condition has been satisfied, i.e. every destination tile holds a crate
      */
     public boolean isWin() {
-        return map.getDestTiles().stream().allMatch(DestTile::isCompleted);
+        return map.getNumCratesOnDest() == map.getNumDestTiles();
     }
 
     /**
-     * When no crates can be moved but the game is not won, then deadlock has occurred
+     * Deadlock has occurred when a crate sits on a square from which it can never reach a destination, or when
+     * crates are frozen in place while not all of them are on destinations. The check is done incrementally by
+     * the map after every push.
      *
      * @return Whether deadlock has occurred
      */
     public boolean isDeadlocked() {
-        for (Crate c : map.getCrates()) {
-            boolean canMoveLR = map.isOccupiableAndNotOccupiedWithCrate(c.getR(), c.getC() - 1)
-                    && map.isOccupiableAndNotOccupiedWithCrate(c.getR(), c.getC() + 1);
-            boolean canMoveUD = map.isOccupiableAndNotOccupiedWithCrate(c.getR() - 1, c.getC()) &&
-                    map.isOccupiableAndNotOccupiedWithCrate(c.getR() + 1, c.getC());
-            if (canMoveLR || canMoveUD)
-                return false;
-        }
-        return true;
+        return map.isDeadlocked();
     }
 
     /**
@@ -105,8 +173,110 @@ public class GameLevel {
                 break;
         }
         if (madeMove) {
-            numPushes.setValue(numPushes.getValue() + 1);
+            moveLog.record(MoveLog.encode(directionIndex(c), map.isLastMovePush()));
+            numPushes++;
+            fireCountersChanged();
         }
         return madeMove;
     }
+
+    /**
+     * Walks the player to the location along a shortest path which pushes no crate, see
+     * {@link Map#findWalk(int, int)}. The walk is applied as one batch: listeners are notified once, and the map's
+     * changed cells can be rendered together. Each step can still be undone on its own.
+     *
+     * @param r The row coordinate
+     * @param c The column coordinate
+     * @return The number of moves made, 0 if the player already stands there or cannot get there without pushing
+     */
+    public int walkTo(int r, int c) {
+        Map.Direction[] walk = map.findWalk(r, c);
+        if (walk == null || walk.length == 0)
+            return 0;
+        for (Map.Direction d : walk) {
+            map.movePlayer(d);
+            moveLog.record(MoveLog.encode(d.ordinal(), false));
+        }
+        numPushes += walk.length;
+        fireCountersChanged();
+        return walk.length;
+    }
+
+    private static int directionIndex(char c) {
+        switch (c) {
+            case 'w':
+                return Map.Direction.UP.ordinal();
+            case 's':
+                return Map.Direction.DOWN.ordinal();
+            case 'a':
+                return Map.Direction.LEFT.ordinal();
+            default:
+                return Map.Direction.RIGHT.ordinal();
+        }
+    }
+
+    /**
+     * Reverts the last move, pulling back the crate if the move was a push. Runs in O(1) without copying the map.
+     *
+     * @return Whether there was a move to undo
+     */
+    public boolean undo() {
+        return undo(1) == 1;
+    }
+
+    /**
+     * Jumps back up to n moves
+     *
+     * @param n The number of moves to undo
+     * @return The number of moves actually undone
+     */
+    public int undo(int n) {
+        int done = 0;
+        while (done < n && moveLog.canUndo()) {
+            int move = moveLog.undo();
+            map.undoMove(DIRECTIONS[MoveLog.direction(move)], MoveLog.pushed(move));
+            done++;
+        }
+        if (done > 0) {
+            numPushes -= done;
+            fireCountersChanged();
+        }
+        return done;
+    }
+
+    /**
+     * Makes the last undone move again
+     *
+     * @return Whether there was a move to redo
+     */
+    public boolean redo() {
+        return redo(1) == 1;
+    }
+
+    /**
+     * Jumps forward up to n undone moves. Making a new move discards the moves that could have been redone.
+     *
+     * @param n The number of moves to redo
+     * @return The number of moves actually redone
+     */
+    public int redo(int n) {
+        int done = 0;
+        while (done < n && moveLog.canRedo()) {
+            map.movePlayer(DIRECTIONS[MoveLog.direction(moveLog.redo())]);
+            done++;
+        }
+        if (done > 0) {
+            numPushes += done;
+            fireCountersChanged();
+        }
+        return done;
+    }
+
+    public int getNumUndoableMoves() {
+        return moveLog.getNumUndoable();
+    }
+
+    public int getNumRedoableMoves() {
+        return moveLog.getNumRedoable();
+    }
 }
@@ -0,0 +1,96 @@
+package model;
+
+import model.Map.MapSnapshot;
+
+/**
+ * One independent game of a level, with its own map, move counter, restart counter and clock, created by a
+ * {@link SessionManager}. Unlike the level played in the UI through {@link LevelManager}, any number of sessions
+ * can exist at once.
+ * <p>
+ * The methods are synchronized, so a session can be driven from different threads one after another, e.g. by
+ * successive requests of a client; different sessions share nothing but the immutable level snapshot.
+ */
+public class GameSession {
+    private final long id;
+    private final String levelName;
+    private final MapSnapshot snapshot;
+    private final GameLevel gameLevel = new GameLevel();
+    private int numRestarts;
+    private long startNanos;
+
+    GameSession(long id, String levelName, MapSnapshot snapshot) {
+        this.id = id;
+        this.levelName = levelName;
+        this.snapshot = snapshot;
+        this.gameLevel.load(snapshot);
+        this.startNanos = System.nanoTime();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getLevelName() {
+        return levelName;
+    }
+
+    /**
+     * @param c One of the keys of {@link GameLevel#makeMove(char)}
+     * @return Whether the move was successful
+     */
+    public synchronized boolean makeMove(char c) {
+        return gameLevel.makeMove(c);
+    }
+
+    public synchronized boolean undo() {
+        return gameLevel.undo();
+    }
+
+    public synchronized boolean redo() {
+        return gameLevel.redo();
+    }
+
+    public synchronized boolean isWin() {
+        return gameLevel.isWin();
+    }
+
+    public synchronized boolean isDeadlocked() {
+        return gameLevel.isDeadlocked();
+    }
+
+    public synchronized int getNumMoves() {
+        return gameLevel.getNumPushes();
+    }
+
+    public synchronized int getNumCratesOnDest() {
+        return gameLevel.getNumCratesOnDest();
+    }
+
+    public synchronized int getNumRestarts() {
+        return numRestarts;
+    }
+
+    /**
+     * Puts the level back into its initial state and restarts the clock
+     */
+    public synchronized void restart() {
+        gameLevel.load(snapshot);
+        numRestarts++;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return The time since the session was opened or last restarted
+     */
+    public synchronized long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Gives direct access to the level, e.g. to render it. Callers must synchronize on the session while using it
+     * if the session is shared between threads.
+     */
+    public GameLevel getGameLevel() {
+        return gameLevel;
+    }
+}
@@ -0,0 +1,136 @@
+package model;
+
+import model.Exceptions.InvalidMapException;
+import model.Map.Map;
+import model.Map.MapSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+
+/**
+ * A bounded LRU cache of parsed levels, holding the immutable initial {@link MapSnapshot} of each level file.
+ * Entries are keyed by the file path and invalidated when the file's modification time changes, so an edited map
+ * is parsed again. Restarting a level, going to the next level and browsing the level list then only cost a
+ * file stat and a snapshot restore. Levels inside a {@link LevelPack} are keyed by the pack and their position in it.
+ */
+public class LevelCache {
+    private static final LevelCache ourInstance = new LevelCache();
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int capacity = DEFAULT_CAPACITY;
+    private long hits;
+    private long misses;
+
+    private LevelCache() {
+    }
+
+    public static LevelCache getInstance() {
+        return ourInstance;
+    }
+
+    /**
+     * @param filename The level file
+     * @return The initial state of the level, parsed from disk only if it is not cached or has changed
+     * @throws InvalidMapException when the map is invalid
+     * @throws IOException         when the file cannot be read
+     */
+    public MapSnapshot get(String filename) throws InvalidMapException, IOException {
+        Path path = Paths.get(filename).toAbsolutePath().normalize();
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        return get(path.toString(), modified, () -> GameLevel.readMap(path.toString()));
+    }
+
+    /**
+     * @param level A level inside a pack
+     * @return The initial state of the level, parsed from the pack only if it is not cached
+     * @throws InvalidMapException when the map is invalid
+     * @throws IOException         when the pack cannot be read
+     */
+    public MapSnapshot get(LevelPack.Entry level) throws InvalidMapException, IOException {
+        Path path = level.getPack().getPath().toAbsolutePath().normalize();
+        return get(path + "#" + level.getOffset(), level.getModified(), level::read);
+    }
+
+    private MapSnapshot get(String key, long modified, Loader loader) throws InvalidMapException, IOException {
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.modified == modified) {
+                hits++;
+                return entry.snapshot;
+            }
+            misses++;
+        }
+
+        //parse outside the lock, so that loading one level does not block lookups of others
+        MapSnapshot snapshot = loader.load().snapshot();
+        synchronized (this) {
+            entries.put(key, new Entry(modified, snapshot));
+            trim();
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param capacity The maximum number of levels to keep, least recently used levels are evicted first
+     */
+    public synchronized void setCapacity(int capacity) {
+        this.capacity = capacity;
+        trim();
+    }
+
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Drops all cached levels and resets the hit/miss counters
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("LevelCache[%d/%d levels, %d hits, %d misses]", entries.size(), capacity, hits, misses);
+    }
+
+    private void trim() {
+        var it = entries.values().iterator();
+        while (entries.size() > capacity && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private interface Loader {
+        Map load() throws InvalidMapException, IOException;
+    }
+
+    private static final class Entry {
+        final long modified;
+        final MapSnapshot snapshot;
+
+        Entry(long modified, MapSnapshot snapshot) {
+            this.modified = modified;
+            this.snapshot = snapshot;
+        }
+    }
+}
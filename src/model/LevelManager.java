@@ -1,35 +1,80 @@
 package model;
 
-import javafx.application.Platform;
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.SimpleIntegerProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
-import javafx.concurrent.Task;
 import model.Exceptions.InvalidMapException;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Keeps track of the current GameLevel and level name. Also tracks information
  * that's related to this game level but not specific to the map of the game
  * level, i.e. how long the player has been playing the level, how many restarts, etc.
+ * <p>
+ * The state is kept in plain fields and reported to {@link Listener listeners}, so the model runs without JavaFX.
+ * Results of background work (level loads, validation, the level timer) are handed over through the
+ * {@link #setCallbackExecutor(Executor) callback executor}, which a user interface sets to its UI thread.
  */
 public class LevelManager {
+    //declared before ourInstance, which is constructed during class initialization
+    private static final Listener[] NO_LISTENERS = new Listener[0];
     private static final LevelManager ourInstance = new LevelManager();
-    private final ObservableList<String> levelNames = FXCollections.observableArrayList();
-    private final StringProperty curLevelNameProperty = new SimpleStringProperty();
-    private final IntegerProperty curGameLevelExistedDuration = new SimpleIntegerProperty();
-    private final IntegerProperty curGameLevelNumRestarts = new SimpleIntegerProperty();
+
+    private final ArrayList<String> levelNames = new ArrayList<>();
+    //levels inside pack files, by their name in levelNames
+    private final HashMap<String, LevelPack.Entry> packLevels = new HashMap<>();
     private final GameLevel gameLevel = new GameLevel();
-    private Timer t = new Timer(true); //declare as daemon, so application exits when Platform.exit is called
+    //results of the last validation of the level list, by level name
+    private final HashMap<String, LevelValidator.Result> validation = new HashMap<>();
+    private final AtomicLong validationGeneration = new AtomicLong();
+    //incremented by every asynchronous load, so that a load finishing after a newer one started is dropped
+    private final AtomicLong loadGeneration = new AtomicLong();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "level-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //a single daemon thread ticks the level clock, so that restarts do not create threads
+    private final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "level-clock");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //set while a tick waits on the callback executor, so a busy UI thread gets at most one pending update
+    private final AtomicBoolean tickPending = new AtomicBoolean();
+    private ScheduledFuture<?> clockTick;
+    //time on the level clock before it was last started or resumed, and the System.nanoTime when that happened
+    private long clockElapsed;
+    private long clockStart;
+    private boolean clockRunning;
+    private boolean clockPaused;
     private String mapDirectory = "";
+    private volatile String curLevelName;
+    private volatile int curGameLevelExistedDuration;
+    private volatile int curGameLevelNumRestarts;
+    private volatile boolean loading;
+    private volatile Executor callbackExecutor = Runnable::run;
+    private Listener[] listeners = NO_LISTENERS;
 
     private LevelManager() {
     }
@@ -38,6 +83,47 @@ public class LevelManager {
         return ourInstance;
     }
 
+    /**
+     * Notified when the state of the level manager changes. Changes made by a method call are reported on the
+     * calling thread, changes made in the background on the {@link #setCallbackExecutor(Executor) callback executor}.
+     */
+    public interface Listener {
+        /**
+         * The level names were reloaded
+         */
+        default void levelNamesChanged() {
+        }
+
+        /**
+         * The current level name, existed duration, number of restarts, loading state or validation results changed
+         */
+        default void stateChanged() {
+        }
+    }
+
+    public void addListener(Listener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    private void fireLevelNamesChanged() {
+        for (Listener listener : listeners)
+            listener.levelNamesChanged();
+    }
+
+    private void fireStateChanged() {
+        for (Listener listener : listeners)
+            listener.stateChanged();
+    }
+
+    /**
+     * @param callbackExecutor Runs the results of background work, e.g. Platform::runLater. By default they run on
+     *                         the background thread which produced them.
+     */
+    public void setCallbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
     public void setMapDirectory(String mapDirectory) {
         this.mapDirectory = mapDirectory;
     }
@@ -51,22 +137,106 @@ public class LevelManager {
      * Streams, Predicates, and Consumers. Load the files by alphabetical sorted order.
      * <p>
      * Hints: Files.walk(Paths.get(mapDirectory), 1) returns a Stream of files 1 folder deep
+     * <p>
+     * Only the file names are listed; text and binary levels are told apart by their contents when loaded.
+     * {@link LevelPack Level packs} are indexed instead, and each level inside them is listed under its own name.
      */
     public void loadLevelNamesFromDisk() {
+        this.validationGeneration.incrementAndGet();
+        this.validation.clear();
         this.levelNames.clear();
+        this.packLevels.clear();
+        List<String> names = new ArrayList<>();
         try (var mapFiles = Files.walk(Paths.get(this.mapDirectory), 1)){
-            mapFiles.filter(path -> Files.isRegularFile(path)).sorted().forEach(path -> this.levelNames.add(path.getFileName().toString()));
+            mapFiles.filter(path -> Files.isRegularFile(path)).sorted().forEach(path -> {
+                if (!LevelPack.isLevelPack(path)) {
+                    names.add(path.getFileName().toString());
+                    return;
+                }
+                try {
+                    for (LevelPack.Entry level : LevelPack.index(path).getEntries()) {
+                        names.add(level.getName());
+                        packLevels.put(level.getName(), level);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            });
         } catch (IOException e) {
             e.printStackTrace();
         }
+        this.levelNames.addAll(names);
+        fireLevelNamesChanged();
     }
 
-    public ObservableList<String> getLevelNames() {
-        return levelNames;
+    /**
+     * @return The level names, which change when {@link #loadLevelNamesFromDisk()} is called
+     */
+    public List<String> getLevelNames() {
+        return Collections.unmodifiableList(levelNames);
+    }
+
+    /**
+     * @param levelName A name from {@link #getLevelNames()}
+     * @return The level inside a pack listed under the name, or null if the name is a level file
+     */
+    public LevelPack.Entry getPackLevel(String levelName) {
+        return packLevels.get(levelName);
+    }
+
+    /**
+     * @param levelName A name from {@link #getLevelNames()}
+     * @return The file holding the level, which is a pack file for levels inside packs
+     */
+    public Path getLevelPath(String levelName) {
+        LevelPack.Entry packLevel = packLevels.get(levelName);
+        return packLevel != null ? packLevel.getPack().getPath() : Paths.get(this.mapDirectory, levelName);
+    }
+
+    /**
+     * Checks every level in {@link #levelNames} with {@link LevelValidator} on background threads. The results are
+     * published into {@link #getValidation()} on the callback executor, and the report is written to
+     * ~/.sokoban/validation-report.txt. Results are dropped if the level names are reloaded in the meantime.
+     *
+     * @return A future which completes with the report once it has been published
+     */
+    public CompletableFuture<LevelValidator.Report> validateLevelsAsync() {
+        long generation = validationGeneration.incrementAndGet();
+        Supplier<LevelValidator.Report> validator = LevelValidator.prepare(this.levelNames);
+        return CompletableFuture.supplyAsync(() -> {
+            LevelValidator.Report report = validator.get();
+            if (generation != validationGeneration.get())
+                throw new CancellationException();
+            Path reportFile = Paths.get(System.getProperty("user.home"), ".sokoban", "validation-report.txt");
+            try {
+                Files.createDirectories(reportFile.getParent());
+                try (Writer writer = Files.newBufferedWriter(reportFile)) {
+                    report.write(writer);
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return report;
+        }).thenApplyAsync(report -> {
+            if (generation != validationGeneration.get())
+                throw new CancellationException();
+            for (LevelValidator.Result result : report.getResults())
+                this.validation.put(result.getLevelName(), result);
+            fireStateChanged();
+            return report;
+        }, callbackExecutor);
+    }
+
+    /**
+     * @return The result of the last {@link #validateLevelsAsync() validation} of each level, by level name. Empty
+     * until the level names have been validated.
+     */
+    public Map<String, LevelValidator.Result> getValidation() {
+        return Collections.unmodifiableMap(validation);
     }
 
-    public StringProperty currentLevelNameProperty() {
-        return curLevelNameProperty;
+    public String getCurrentLevelName() {
+        return curLevelName;
     }
 
     /**
@@ -80,48 +250,183 @@ public class LevelManager {
      * @throws InvalidMapException if the map was invalid
      */
     public void setLevel(String levelName) throws InvalidMapException {
-        this.curLevelNameProperty.setValue(levelName);
-        this.curGameLevelExistedDuration.set(0);
-        this.gameLevel.numPushesProperty().setValue(0);
-        this.gameLevel.loadMap(this.mapDirectory +"\\"+ levelName);
+        //supersedes any asynchronous load still in progress
+        this.loadGeneration.incrementAndGet();
+        this.loading = false;
+        this.curLevelName = levelName;
+        this.curGameLevelExistedDuration = 0;
+        LevelPack.Entry packLevel = getPackLevel(levelName);
+        if (packLevel != null)
+            this.gameLevel.loadMap(packLevel);
+        else
+            this.gameLevel.loadMap(getLevelPath(levelName).toString());
+        fireStateChanged();
     }
 
     /**
-     * Starts the timer, which updates {@link #curGameLevelExistedDuration} every second.
+     * Like {@link #setLevel(String)}, but reads, parses and validates the level on a background thread, so that a
+     * slow disk or a large map does not block the UI. The new map and the level name are published together on
+     * the callback executor, when the returned future completes. {@link #isLoading()} is true while a load is in
+     * progress.
      * <p>
-     * Hint: {@link java.util.Timer#scheduleAtFixedRate(TimerTask, long, long)} and
-     * {@link javafx.application.Platform#runLater(Runnable)} are required
-     */
-    public void startLevelTimer() {
-        this.curGameLevelExistedDuration.set(0);
-        this.t.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                Platform.runLater(() -> curGameLevelExistedDuration.setValue(curGameLevelExistedDuration.get() + 1));
+     * Only the latest load counts: when another load is started before this one finishes, this one is dropped and
+     * its future completes with a {@link CancellationException}. Must be called on the thread the callback executor
+     * runs on.
+     *
+     * @param levelName The level name to set
+     * @return A future which completes on the callback executor once the level is set, or exceptionally
+     * with the {@link InvalidMapException} or {@link IOException} which made loading fail
+     */
+    public CompletableFuture<Void> setLevelAsync(String levelName) {
+        long generation = loadGeneration.incrementAndGet();
+        LevelPack.Entry packLevel = getPackLevel(levelName);
+        Path path = getLevelPath(levelName);
+        loading = true;
+        fireStateChanged();
+        return CompletableFuture.supplyAsync(() -> {
+            if (generation != loadGeneration.get())
+                throw new CancellationException();
+            try {
+                return packLevel != null ? LevelCache.getInstance().get(packLevel)
+                        : LevelCache.getInstance().get(path.toString());
+            } catch (InvalidMapException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }, loader).handleAsync((snapshot, e) -> {
+            //runs on the callback executor even when loading failed, so callers can touch the UI
+            if (generation != loadGeneration.get())
+                throw new CancellationException();
+            loading = false;
+            if (e != null) {
+                fireStateChanged();
+                throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
             }
-        }, 0L, 1000L);
+            this.curLevelName = levelName;
+            this.curGameLevelExistedDuration = 0;
+            this.gameLevel.load(snapshot);
+            fireStateChanged();
+            return null;
+        }, callbackExecutor);
+    }
+
+    /**
+     * @param e The exception a future returned by {@link #setLevelAsync(String)} completed with
+     * @return Whether the load was only dropped because a newer one started, which is not an error
+     */
+    public static boolean isSuperseded(Throwable e) {
+        return e instanceof CancellationException || e.getCause() instanceof CancellationException;
+    }
+
+    /**
+     * @return Whether a level is being loaded by {@link #setLevelAsync(String)}
+     */
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /**
+     * Starts the level clock from zero. The existed duration is computed from {@link System#nanoTime()}, so it does
+     * not drift however late the ticks run; ticks only tell the listeners when the whole number of seconds changes.
+     */
+    public synchronized void startLevelTimer() {
+        stopClockTick();
+        this.clockElapsed = 0;
+        this.clockStart = System.nanoTime();
+        this.clockRunning = true;
+        this.clockPaused = false;
+        this.curGameLevelExistedDuration = 0;
+        fireStateChanged();
+        scheduleClockTick();
+    }
+
+    /**
+     * Stops the level clock. The existed duration keeps its value until the clock is started again.
+     */
+    public synchronized void resetLevelTimer() {
+        stopClockTick();
+        this.clockRunning = false;
+        this.clockPaused = false;
+    }
+
+    /**
+     * Stops the level clock until {@link #resumeLevelTimer()}, e.g. while the game window is minimized. Does nothing
+     * if the clock is not running.
+     */
+    public synchronized void pauseLevelTimer() {
+        if (!clockRunning)
+            return;
+        stopClockTick();
+        this.clockElapsed += System.nanoTime() - clockStart;
+        this.clockRunning = false;
+        this.clockPaused = true;
+    }
+
+    /**
+     * Continues the level clock where {@link #pauseLevelTimer()} stopped it
+     */
+    public synchronized void resumeLevelTimer() {
+        if (!clockPaused)
+            return;
+        this.clockStart = System.nanoTime();
+        this.clockRunning = true;
+        this.clockPaused = false;
+        scheduleClockTick();
     }
 
     /**
-     * Cancels the existing timer and assigns it to a new instance
+     * @return The time on the level clock
      */
-    public void resetLevelTimer() {
-        t.cancel();
-        t = new Timer(true);
+    public synchronized long getLevelTimerNanos() {
+        return clockRunning ? clockElapsed + System.nanoTime() - clockStart : clockElapsed;
+    }
+
+    private void scheduleClockTick() {
+        //tick on the whole seconds of the level clock
+        long second = TimeUnit.SECONDS.toNanos(1);
+        long delay = second - getLevelTimerNanos() % second;
+        clockTick = clock.scheduleAtFixedRate(this::tickClock, delay, second, TimeUnit.NANOSECONDS);
+    }
+
+    private void stopClockTick() {
+        if (clockTick != null) {
+            clockTick.cancel(false);
+            clockTick = null;
+        }
+    }
+
+    private void tickClock() {
+        if (!tickPending.compareAndSet(false, true))
+            return;
+        callbackExecutor.execute(() -> {
+            tickPending.set(false);
+            int seconds;
+            synchronized (this) {
+                //a tick which was already queued when the clock stopped
+                if (!clockRunning)
+                    return;
+                seconds = (int) TimeUnit.NANOSECONDS.toSeconds(getLevelTimerNanos());
+            }
+            if (seconds != curGameLevelExistedDuration) {
+                curGameLevelExistedDuration = seconds;
+                fireStateChanged();
+            }
+        });
     }
 
     /**
      * Increment the number of restarts the user has performed on the current GameLevel
      */
     public void incrementNumRestarts() {
-        curGameLevelNumRestarts.set(curGameLevelNumRestarts.get() + 1);
+        curGameLevelNumRestarts++;
+        fireStateChanged();
     }
 
     /**
      * Reset the number of restarts the user has performed on the current GameLevel
      */
     public void resetNumRestarts() {
-        curGameLevelNumRestarts.set(0);
+        curGameLevelNumRestarts = 0;
+        fireStateChanged();
     }
 
     /**
@@ -133,17 +438,17 @@ public class LevelManager {
         boolean flag = false;
         for (String levelName : this.levelNames) {
             if (flag) return levelName;
-            if (!levelName.equals(this.curLevelNameProperty.getValue())) continue;
+            if (!levelName.equals(this.curLevelName)) continue;
             flag = true;
         }
         return null;
     }
 
-    public IntegerProperty curGameLevelExistedDurationProperty() {
+    public int getCurGameLevelExistedDuration() {
         return curGameLevelExistedDuration;
     }
 
-    public IntegerProperty curGameLevelNumRestartsProperty() {
+    public int getCurGameLevelNumRestarts() {
         return curGameLevelNumRestarts;
     }
 }
@@ -0,0 +1,327 @@
+package model;
+
+import model.Exceptions.InvalidMapException;
+import model.Map.Map;
+import model.Map.MapParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A collection file holding many levels in the standard Sokoban notation, either as plain text (XSB) or as XML
+ * with one {@code <L>} element per row (SLC). The file is indexed in a single streaming pass which only records
+ * where each level starts and ends, so opening a pack of thousands of levels does not parse any of them. A level
+ * is parsed when it is {@link Entry#read() read}.
+ * <p>
+ * Standard notation is translated as follows: '#' wall, '@' player, '+' player on destination, '$' crate, '*' crate
+ * on destination, '.' destination, and ' ', '-' or '_' empty tile. Rows shorter than the widest row are padded with
+ * empty tiles.
+ */
+public class LevelPack {
+    private static final String[] EXTENSIONS = {".xsb", ".sok", ".slc"};
+    private static final int BUFFER_SIZE = 1 << 16;
+    //project map characters of the standard notation, 0 for characters which cannot appear in a board row
+    private static final byte[] TRANSLATION = new byte[128];
+
+    static {
+        TRANSLATION['#'] = '#';
+        TRANSLATION['@'] = '@';
+        TRANSLATION['+'] = '&';
+        TRANSLATION['$'] = 'c';
+        TRANSLATION['*'] = '$';
+        TRANSLATION['.'] = 'C';
+        TRANSLATION[' '] = '.';
+        TRANSLATION['-'] = '.';
+        TRANSLATION['_'] = '.';
+    }
+
+    private final Path path;
+    private final long modified;
+    private final List<Entry> entries = new ArrayList<>();
+
+    private LevelPack(Path path, long modified) {
+        this.path = path;
+        this.modified = modified;
+    }
+
+    /**
+     * @return Whether the file name has the extension of a level pack
+     */
+    public static boolean isLevelPack(Path path) {
+        String name = path.getFileName().toString().toLowerCase();
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith(extension))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param c A character in the standard Sokoban notation
+     * @return The corresponding character of the map file format, or 0 if there is none
+     */
+    public static char translate(char c) {
+        return c < TRANSLATION.length ? (char) TRANSLATION[c] : 0;
+    }
+
+    /**
+     * Indexes the levels of a pack file in one streaming pass
+     *
+     * @param path The pack file
+     * @return The pack, with one entry per level
+     * @throws IOException when the file cannot be read
+     */
+    public static LevelPack index(Path path) throws IOException {
+        LevelPack pack = new LevelPack(path, Files.getLastModifiedTime(path).toMillis());
+        try (InputStream in = Files.newInputStream(path)) {
+            new Indexer(pack).run(in);
+        }
+        return pack;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Strips the XML tags of an SLC row, e.g. {@code <L>#..#</L>}
+     *
+     * @return The start of the board row in line, or -1 if the line is not a board row
+     */
+    private static int rowStart(byte[] line, int length) {
+        int start = 0;
+        while (start < length && (line[start] == ' ' || line[start] == '\t'))
+            start++;
+        if (start + 3 <= length && line[start] == '<' && line[start + 1] == 'L' && line[start + 2] == '>')
+            return start + 3;
+        return isBoardRow(line, 0, length) ? 0 : -1;
+    }
+
+    private static int rowEnd(byte[] line, int start, int length) {
+        for (int i = start; i < length; i++) {
+            if (line[i] == '<')
+                return i;
+        }
+        return length;
+    }
+
+    private static boolean isBoardRow(byte[] line, int start, int end) {
+        boolean hasWall = false;
+        for (int i = start; i < end; i++) {
+            int b = line[i] & 0xFF;
+            if (b >= TRANSLATION.length || TRANSLATION[b] == 0)
+                return false;
+            hasWall |= b == '#';
+        }
+        return hasWall;
+    }
+
+    /**
+     * A level inside a pack, located by the byte range of its rows
+     */
+    public static final class Entry {
+        private final LevelPack pack;
+        private final int number;
+        private final long offset;
+        private final int length;
+        private String title;
+
+        private Entry(LevelPack pack, int number, long offset, int length) {
+            this.pack = pack;
+            this.number = number;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public LevelPack getPack() {
+            return pack;
+        }
+
+        /**
+         * @return The position of the level in the pack, starting from 1
+         */
+        public int getNumber() {
+            return number;
+        }
+
+        /**
+         * @return The title given in the pack, or null
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        long getOffset() {
+            return offset;
+        }
+
+        long getModified() {
+            return pack.modified;
+        }
+
+        /**
+         * @return The name shown in the level list, unique within the map directory
+         */
+        public String getName() {
+            String name = String.format("%s #%d", pack.path.getFileName(), number);
+            return title == null ? name : name + " " + title;
+        }
+
+        /**
+         * Reads and parses only the rows of this level from the pack file
+         *
+         * @return A new map initialized from the level
+         * @throws InvalidMapException when the level is invalid
+         * @throws IOException         when the file cannot be read or has changed since it was indexed
+         */
+        public Map read() throws InvalidMapException, IOException {
+            if (Files.getLastModifiedTime(pack.path).toMillis() != pack.modified)
+                throw new IOException(pack.path + " has changed since it was indexed");
+            ByteBuffer buf = ByteBuffer.allocate(length);
+            try (FileChannel channel = FileChannel.open(pack.path, StandardOpenOption.READ)) {
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf, offset + buf.position()) < 0)
+                        break;
+                }
+            }
+            return MapParser.parse(toMapFile(buf.array(), buf.position()));
+        }
+
+        /**
+         * Translates the rows into the map file format, with the number of rows and columns as the header
+         */
+        private static byte[] toMapFile(byte[] data, int size) {
+            List<byte[]> rows = new ArrayList<>();
+            int cols = 0;
+            int lineStart = 0;
+            for (int i = 0; i <= size; i++) {
+                if (i < size && data[i] != '\n')
+                    continue;
+                int lineEnd = i > lineStart && data[i - 1] == '\r' ? i - 1 : i;
+                byte[] line = new byte[lineEnd - lineStart];
+                System.arraycopy(data, lineStart, line, 0, line.length);
+                int start = rowStart(line, line.length);
+                if (start >= 0) {
+                    int end = rowEnd(line, start, line.length);
+                    byte[] row = new byte[end - start];
+                    for (int c = 0; c < row.length; c++) {
+                        int b = line[start + c] & 0xFF;
+                        //unknown characters are passed on, so the parser reports them with their position
+                        row[c] = b < TRANSLATION.length && TRANSLATION[b] != 0 ? TRANSLATION[b] : (byte) b;
+                    }
+                    rows.add(row);
+                    cols = Math.max(cols, row.length);
+                }
+                lineStart = i + 1;
+            }
+
+            StringBuilder sb = new StringBuilder(rows.size() * (cols + 1) + 16);
+            sb.append(rows.size()).append('\n').append(cols).append('\n');
+            for (byte[] row : rows) {
+                sb.append(new String(row, StandardCharsets.ISO_8859_1));
+                for (int c = row.length; c < cols; c++)
+                    sb.append('.');
+                sb.append('\n');
+            }
+            return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    /**
+     * Scans the pack line by line with a fixed buffer, tracking the byte offset of every line. A level is a run of
+     * consecutive board rows. Its title is taken from a "Title:" line after the rows, an SLC {@code Id} attribute, or
+     * the last comment or text line before the rows.
+     */
+    private static final class Indexer {
+        private final LevelPack pack;
+        private byte[] line = new byte[256];
+        private int lineLength;
+        private long lineOffset;
+        private long levelStart = -1;
+        private long levelEnd;
+        private String pendingTitle;
+        private Entry last;
+
+        Indexer(LevelPack pack) {
+            this.pack = pack;
+        }
+
+        void run(InputStream in) throws IOException {
+            byte[] buf = new byte[BUFFER_SIZE];
+            long offset = 0;
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    byte b = buf[i];
+                    if (b == '\n') {
+                        endLine(offset + i + 1);
+                    } else {
+                        if (lineLength == line.length)
+                            line = Arrays.copyOf(line, line.length * 2);
+                        line[lineLength++] = b;
+                    }
+                }
+                offset += n;
+            }
+            endLine(offset);
+            endLevel();
+        }
+
+        private void endLine(long nextLineOffset) {
+            if (lineLength > 0 && line[lineLength - 1] == '\r')
+                lineLength--;
+            int start = rowStart(line, lineLength);
+            if (start >= 0) {
+                if (levelStart < 0)
+                    levelStart = lineOffset;
+                levelEnd = nextLineOffset;
+            } else {
+                endLevel();
+                readTitle();
+            }
+            lineLength = 0;
+            lineOffset = nextLineOffset;
+        }
+
+        private void endLevel() {
+            if (levelStart < 0)
+                return;
+            last = new Entry(pack, pack.entries.size() + 1, levelStart, (int) (levelEnd - levelStart));
+            last.title = pendingTitle;
+            pendingTitle = null;
+            pack.entries.add(last);
+            levelStart = -1;
+        }
+
+        private void readTitle() {
+            String text = new String(line, 0, lineLength, StandardCharsets.UTF_8).trim();
+            if (text.isEmpty())
+                return;
+            if (text.startsWith("<Level ")) {
+                int id = text.indexOf("Id=\"");
+                if (id >= 0 && text.indexOf('"', id + 4) > 0)
+                    pendingTitle = text.substring(id + 4, text.indexOf('"', id + 4));
+            } else if (text.regionMatches(true, 0, "Title:", 0, 6)) {
+                if (last != null && text.length() > 6)
+                    last.title = text.substring(6).trim();
+            } else if (!text.startsWith("<") && !text.contains(":")) {
+                //other "Key: value" lines, e.g. Author or Comment, are metadata rather than titles
+                pendingTitle = text.startsWith(";") ? text.substring(1).trim() : text;
+            }
+        }
+    }
+}
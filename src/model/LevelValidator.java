@@ -0,0 +1,183 @@
+package model;
+
+import model.Exceptions.InvalidMapException;
+import model.Exceptions.UnbalancedMapException;
+import model.Map.Map;
+import model.Map.MapParser;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Parses and checks many levels at once, e.g. every level of a map directory, so that broken maps can be reported
+ * before the user tries to play them. A level is invalid when it cannot be read or parsed (unknown elements, a
+ * malformed size or rows, not exactly one player), or when its number of crates differs from its number of
+ * destination tiles.
+ * <p>
+ * The levels are checked in parallel on the common fork/join pool, and each one is timed.
+ * <p>
+ * Usage: LevelValidator directory [report], which prints the report or writes it to the report file.
+ */
+public class LevelValidator {
+
+    /**
+     * The outcome of checking a single level
+     */
+    public static final class Result {
+        private final String levelName;
+        private final String error;
+        private final long nanos;
+
+        Result(String levelName, String error, long nanos) {
+            this.levelName = levelName;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public String getLevelName() {
+            return levelName;
+        }
+
+        public boolean isValid() {
+            return error == null;
+        }
+
+        /**
+         * @return Why the level is invalid, or null if it is valid
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return The time spent reading and checking the level
+         */
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    /**
+     * The results of a validation run, in the order the levels were given
+     */
+    public static final class Report {
+        private final List<Result> results;
+        private final long nanos;
+
+        Report(List<Result> results, long nanos) {
+            this.results = results;
+            this.nanos = nanos;
+        }
+
+        public List<Result> getResults() {
+            return results;
+        }
+
+        public int getNumInvalid() {
+            return (int) results.stream().filter(result -> !result.isValid()).count();
+        }
+
+        /**
+         * @return The wall clock time of the whole run
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * Writes a summary line followed by one tab separated line per level: name, valid or invalid, time, and the
+         * error if there is one
+         */
+        public void write(Writer writer) {
+            PrintWriter out = new PrintWriter(writer);
+            out.printf("# %d levels checked in %.1f ms: %d valid, %d invalid%n", results.size(), nanos / 1e6,
+                    results.size() - getNumInvalid(), getNumInvalid());
+            for (Result result : results) {
+                out.printf("%s\t%s\t%.3f ms", result.levelName, result.isValid() ? "valid" : "invalid",
+                        result.nanos / 1e6);
+                if (!result.isValid())
+                    out.print("\t" + result.error);
+                out.println();
+            }
+            out.flush();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: LevelValidator directory [report]");
+            return;
+        }
+        LevelManager.getInstance().setMapDirectory(args[0]);
+        LevelManager.getInstance().loadLevelNamesFromDisk();
+        Report report = validate(LevelManager.getInstance().getLevelNames());
+        if (args.length < 2) {
+            report.write(new PrintWriter(System.out));
+            return;
+        }
+        try (Writer writer = Files.newBufferedWriter(Paths.get(args[1]))) {
+            report.write(writer);
+        }
+        System.out.printf("%d levels checked in %.1f ms, %d invalid%n", report.results.size(), report.nanos / 1e6,
+                report.getNumInvalid());
+    }
+
+    /**
+     * Checks the levels in parallel
+     *
+     * @param levelNames Names from {@link LevelManager#getLevelNames()}
+     * @return The result of every level
+     */
+    public static Report validate(List<String> levelNames) {
+        return prepare(levelNames).get();
+    }
+
+    /**
+     * Resolves the names to files and pack entries through {@link LevelManager} right away, so that the returned
+     * check can run on any thread even if the level list is reloaded in the meantime
+     */
+    static Supplier<Report> prepare(List<String> levelNames) {
+        String[] names = levelNames.toArray(new String[0]);
+        Path[] paths = new Path[names.length];
+        LevelPack.Entry[] packLevels = new LevelPack.Entry[names.length];
+        for (int i = 0; i < names.length; i++) {
+            packLevels[i] = LevelManager.getInstance().getPackLevel(names[i]);
+            paths[i] = LevelManager.getInstance().getLevelPath(names[i]);
+        }
+        return () -> {
+            long start = System.nanoTime();
+            Result[] results = IntStream.range(0, names.length).parallel()
+                    .mapToObj(i -> check(names[i], paths[i], packLevels[i]))
+                    .toArray(Result[]::new);
+            return new Report(Collections.unmodifiableList(Arrays.asList(results)), System.nanoTime() - start);
+        };
+    }
+
+    private static Result check(String levelName, Path path, LevelPack.Entry packLevel) {
+        long start = System.nanoTime();
+        String error = null;
+        try {
+            Map map = packLevel != null ? packLevel.read() : MapParser.parse(path);
+            if (map.getNumCrates() != map.getNumDestTiles())
+                throw new UnbalancedMapException(map.getNumCrates() + " crates, " + map.getNumDestTiles()
+                        + " destinations");
+        } catch (InvalidMapException e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        } catch (IOException e) {
+            error = "Cannot read " + path + ": " + e;
+        } catch (RuntimeException | OutOfMemoryError e) {
+            //a bug or a huge map in one file must not abort the whole run
+            error = "Failed to load: " + e;
+        }
+        return new Result(levelName, error, System.nanoTime() - start);
+    }
+}
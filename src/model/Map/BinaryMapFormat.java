@@ -0,0 +1,260 @@
+package model.Map;
+
+import model.Exceptions.InvalidMapException;
+import model.Exceptions.MalformedMapException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary level format. Layout, all integers big endian:
+ * <pre>
+ *  0  magic "SOKB"
+ *  4  version (1 byte), flags (1 byte, bit 0: wall runs are run-length encoded)
+ *  6  rows, cols, number of crates (4 bytes each)
+ * 18  CRC32 of the whole file with this field set to 0 (4 bytes)
+ * 22  cells, row by row, 3 bits each, least significant bits first
+ * </pre>
+ * Cell codes 0-6 are tile, wall, destination, crate, crate on destination, player and player on destination. When
+ * run-length encoding is on, code 7 starts a run of at least {@link #MIN_RUN} walls, followed by the run length
+ * minus {@link #MIN_RUN} in groups of 3 bits: 2 bits of length, least significant first, and a continuation bit.
+ */
+public class BinaryMapFormat {
+    public static final String EXTENSION = ".skb";
+    static final byte[] MAGIC = {'S', 'O', 'K', 'B'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 22;
+    private static final int FLAG_RLE = 1;
+    private static final int CRC_OFFSET = 18;
+    private static final int WALL_RUN = 7;
+    private static final int MIN_RUN = 4;
+    //board codes of the cell codes, looked up through the map file characters
+    private static final int[] CELL_CODES = new int[7];
+
+    static {
+        char[] chars = {'.', '#', 'C', 'c', '$', '@', '&'};
+        for (int i = 0; i < chars.length; i++)
+            CELL_CODES[i] = Map.decode(chars[i]);
+    }
+
+    private BinaryMapFormat() {
+    }
+
+    /**
+     * @return Whether the data starts with the binary format's magic number
+     */
+    public static boolean isBinary(byte[] data) {
+        if (data.length < MAGIC.length)
+            return false;
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (data[i] != MAGIC[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param data The contents of a binary level file
+     * @return A new map initialized from the data
+     * @throws InvalidMapException when the data is corrupt or the map is invalid
+     */
+    public static Map read(byte[] data) throws InvalidMapException {
+        if (data.length < HEADER_SIZE || !isBinary(data))
+            throw new MalformedMapException("Not a binary level file");
+        ByteBuffer header = ByteBuffer.wrap(data);
+        int version = data[4];
+        int flags = data[5];
+        int rows = header.getInt(6);
+        int cols = header.getInt(10);
+        int numCrates = header.getInt(14);
+        int crc = header.getInt(CRC_OFFSET);
+        if (version != VERSION)
+            throw new MalformedMapException("Unsupported binary level version " + version);
+        Map.checkSize(rows, cols);
+        if (crc != checksum(data))
+            throw new MalformedMapException("Checksum mismatch, the level file is corrupt");
+        boolean rle = (flags & FLAG_RLE) != 0;
+        //make sure the cells are all there before allocating the board
+        if (rle)
+            countCells(data, (long) rows * cols);
+        else if ((long) rows * cols * 3 > (long) (data.length - HEADER_SIZE) * 8)
+            throw new MalformedMapException("Map size " + rows + "x" + cols + " is larger than the level data");
+
+        Map map = new Map();
+        map.beginInitialize(rows, cols);
+        BitReader in = new BitReader(data, HEADER_SIZE);
+        int r = 0;
+        int c = 0;
+        while (r < rows) {
+            int code = in.read();
+            int run = 1;
+            if (code == WALL_RUN && rle) {
+                run = in.readLength() + MIN_RUN;
+                code = 1;
+            } else if (code >= CELL_CODES.length) {
+                throw new MalformedMapException("Invalid cell code " + code + " at row " + r + ", col " + c);
+            }
+            for (int k = 0; k < run; k++) {
+                if (r == rows)
+                    throw new MalformedMapException("Wall run overflows the map");
+                map.setCell(r, c, CELL_CODES[code]);
+                if (++c == cols) {
+                    c = 0;
+                    r++;
+                }
+            }
+        }
+        map.endInitialize();
+        if (map.getNumCrates() != numCrates)
+            throw new MalformedMapException("Header declares " + numCrates + " crates, found " + map.getNumCrates());
+        return map;
+    }
+
+    /**
+     * Reads run-length encoded level data up to the given number of cells, without storing them
+     *
+     * @throws MalformedMapException when the data ends before that many cells
+     */
+    private static void countCells(byte[] data, long cells) throws MalformedMapException {
+        BitReader in = new BitReader(data, HEADER_SIZE);
+        long count = 0;
+        while (count < cells)
+            count += in.read() == WALL_RUN ? in.readLength() + MIN_RUN : 1;
+    }
+
+    /**
+     * Encodes the current state of the map. Wall runs are run-length encoded when that makes the file smaller.
+     *
+     * @return The contents of a binary level file
+     */
+    public static byte[] write(Map map) {
+        byte[] plain = encode(map, false);
+        byte[] rle = encode(map, true);
+        return rle.length < plain.length ? rle : plain;
+    }
+
+    private static byte[] encode(Map map, boolean rle) {
+        int rows = map.getRows();
+        int cols = map.getCols();
+        BitWriter out = new BitWriter();
+        int total = rows * cols;
+        int cell = 0;
+        while (cell < total) {
+            int code = codeOf(map, cell / cols, cell % cols);
+            if (rle && code == 1) {
+                int run = 1;
+                while (cell + run < total && codeOf(map, (cell + run) / cols, (cell + run) % cols) == 1)
+                    run++;
+                if (run >= MIN_RUN) {
+                    out.write(WALL_RUN);
+                    out.writeLength(run - MIN_RUN);
+                    cell += run;
+                    continue;
+                }
+            }
+            out.write(code);
+            cell++;
+        }
+
+        byte[] payload = out.toByteArray();
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buf.put(MAGIC).put((byte) VERSION).put((byte) (rle ? FLAG_RLE : 0));
+        buf.putInt(rows).putInt(cols).putInt(map.getNumCrates()).putInt(0).put(payload);
+        byte[] data = buf.array();
+        ByteBuffer.wrap(data).putInt(CRC_OFFSET, checksum(data));
+        return data;
+    }
+
+    private static int codeOf(Map map, int r, int c) {
+        boolean dest = map.isDestTile(r, c);
+        if (map.isWall(r, c))
+            return 1;
+        if (map.hasCrate(r, c))
+            return dest ? 4 : 3;
+        if (r == map.getPlayerR() && c == map.getPlayerC())
+            return dest ? 6 : 5;
+        return dest ? 2 : 0;
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, CRC_OFFSET);
+        crc.update(new byte[4]);
+        crc.update(data, CRC_OFFSET + 4, data.length - CRC_OFFSET - 4);
+        return (int) crc.getValue();
+    }
+
+    private static final class BitReader {
+        private final byte[] data;
+        private int pos;
+        //bits read ahead from data, consumed from the least significant end
+        private long buffer;
+        private int available;
+
+        BitReader(byte[] data, int offset) {
+            this.data = data;
+            this.pos = offset;
+        }
+
+        int read() throws MalformedMapException {
+            if (available < 3) {
+                while (available <= 56 && pos < data.length) {
+                    buffer |= (long) (data[pos++] & 0xFF) << available;
+                    available += 8;
+                }
+                if (available < 3)
+                    throw new MalformedMapException("Unexpected end of level data");
+            }
+            int value = (int) buffer & 7;
+            buffer >>>= 3;
+            available -= 3;
+            return value;
+        }
+
+        int readLength() throws MalformedMapException {
+            int length = 0;
+            for (int shift = 0; ; shift += 2) {
+                int group = read();
+                length |= (group & 3) << shift;
+                if ((group & 4) == 0)
+                    return length;
+                if (shift > 28)
+                    throw new MalformedMapException("Wall run length too long");
+            }
+        }
+    }
+
+    private static final class BitWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int current;
+        private int bits;
+
+        void write(int value) {
+            current |= value << bits;
+            bits += 3;
+            while (bits >= 8) {
+                out.write(current & 0xFF);
+                current >>>= 8;
+                bits -= 8;
+            }
+        }
+
+        void writeLength(int length) {
+            do {
+                int group = length & 3;
+                length >>>= 2;
+                write(length != 0 ? group | 4 : group);
+            } while (length != 0);
+        }
+
+        byte[] toByteArray() {
+            if (bits > 0) {
+                out.write(current & 0xFF);
+                current = 0;
+                bits = 0;
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package model.Map;
+
+/**
+ * Detects positions from which the level can no longer be won. Built once per level by {@link Map#initialize}.
+ * <p>
+ * Two kinds of deadlock are recognised:
+ * <ul>
+ * <li>Dead squares: cells from which no sequence of pushes brings a crate onto any destination. They are found
+ * by pulling a crate backwards from every destination tile; every cell a crate can never be pulled onto is dead.
+ * This is a static bitmap, so the check is a single lookup.</li>
+ * <li>Freeze deadlocks: a crate which can move neither horizontally nor vertically, because of walls, dead squares
+ * or other frozen crates, while it or one of the crates freezing it is not on a destination. Only the pushed crate
+ * and its neighbours are examined, so the cost does not grow with the map size.</li>
+ * </ul>
+ * Both checks only apply when every crate is needed, i.e. there are no more crates than destinations.
+ */
+final class DeadlockDetector {
+    private final Map map;
+    private final int stride;
+    private final int[] deltas;
+    private final boolean enabled;
+    //bitmap of cells from which a crate can still reach a destination
+    private final long[] live;
+    //crates on the current freeze check path, treated as walls to break cycles
+    private final long[] onPath;
+    private boolean offDest;
+
+    DeadlockDetector(Map map) {
+        this(map, null);
+    }
+
+    /**
+     * @param live The dead square bitmap of another detector for the same level, which is never modified and can
+     *             be shared, or null to compute it
+     */
+    DeadlockDetector(Map map, long[] live) {
+        this.map = map;
+        this.stride = map.stride();
+        this.deltas = new int[]{-stride, stride, -1, 1};
+        this.enabled = map.getNumCrates() <= map.getNumDestTiles();
+        this.onPath = new long[(map.boardSize() + 63) >>> 6];
+        if (live == null) {
+            this.live = new long[onPath.length];
+            computeLiveSquares();
+        } else {
+            this.live = live;
+        }
+    }
+
+    long[] getLiveSquares() {
+        return live;
+    }
+
+    /**
+     * Multi-source breadth first search pulling a crate away from every destination. Pulling a crate from cell
+     * to prev needs both prev and the cell beyond it to be free of walls, as the player walks backwards.
+     */
+    private void computeLiveSquares() {
+        int size = map.boardSize();
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (map.isDestAt(i)) {
+                set(live, i);
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int cur = queue[head++];
+            for (int delta : deltas) {
+                int prev = cur + delta;
+                if (get(live, prev) || map.isWallAt(prev) || map.isWallAt(prev + delta))
+                    continue;
+                set(live, prev);
+                queue[tail++] = prev;
+            }
+        }
+    }
+
+    boolean isDeadSquare(int i) {
+        return enabled && !map.isWallAt(i) && !get(live, i);
+    }
+
+    /**
+     * Checks the crate which was just pushed onto cell i, and the crates next to it.
+     *
+     * @return Whether the push created a deadlock
+     */
+    boolean isDeadlockedAfterPush(int i) {
+        if (!enabled)
+            return false;
+        if (isDeadlockedCrate(i))
+            return true;
+        for (int delta : deltas) {
+            if (map.hasCrateAt(i + delta) && isDeadlockedCrate(i + delta))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks every crate on the board, e.g. for a freshly loaded level
+     *
+     * @return Whether any crate is deadlocked
+     */
+    boolean isDeadlocked() {
+        if (!enabled)
+            return false;
+        for (int i = map.nextCrate(0); i >= 0; i = map.nextCrate(i + 1)) {
+            if (isDeadlockedCrate(i))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean isDeadlockedCrate(int i) {
+        if (!get(live, i))
+            return true;
+        offDest = false;
+        return isFrozen(i) && offDest;
+    }
+
+    /**
+     * A crate is frozen when it is blocked along both axes. While it is being examined it counts as a wall, so
+     * that two crates next to each other do not recurse forever. {@link #offDest} is raised when a frozen crate
+     * is not on a destination, and restored when the crate turns out not to be frozen.
+     */
+    private boolean isFrozen(int i) {
+        boolean savedOffDest = offDest;
+        set(onPath, i);
+        boolean frozen = isBlocked(i, 1) && isBlocked(i, stride);
+        clear(onPath, i);
+        if (!frozen) {
+            offDest = savedOffDest;
+        } else if (!map.isDestAt(i)) {
+            offDest = true;
+        }
+        return frozen;
+    }
+
+    private boolean isBlocked(int i, int delta) {
+        int a = i - delta;
+        int b = i + delta;
+        if (map.isWallAt(a) || map.isWallAt(b) || get(onPath, a) || get(onPath, b))
+            return true;
+        if (!get(live, a) && !get(live, b))
+            return true;
+        return (map.hasCrateAt(a) && isFrozen(a)) || (map.hasCrateAt(b) && isFrozen(b));
+    }
+
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    private static void clear(long[] bits, int i) {
+        bits[i >>> 6] &= ~(1L << i);
+    }
+}
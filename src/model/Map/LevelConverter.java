@@ -0,0 +1,85 @@
+package model.Map;
+
+import model.Exceptions.InvalidMapException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Converts levels between the map text format and the {@link BinaryMapFormat binary format}. The input format is
+ * detected from the file contents, the output format from the extension of the output path.
+ * <p>
+ * Usage: LevelConverter input output, where input and output are either two files or two directories. When
+ * converting a directory, every level in it is written to the output directory with the extension of the other
+ * format.
+ */
+public class LevelConverter {
+    public static final String TEXT_EXTENSION = ".txt";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: LevelConverter input output");
+            return;
+        }
+        Path in = Paths.get(args[0]);
+        Path out = Paths.get(args[1]);
+        if (!Files.isDirectory(in)) {
+            convert(in, out);
+            return;
+        }
+        Files.createDirectories(out);
+        List<Path> paths;
+        try (var files = Files.list(in)) {
+            paths = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            boolean binary = name.endsWith(BinaryMapFormat.EXTENSION);
+            String base = name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name;
+            convert(path, out.resolve(base + (binary ? TEXT_EXTENSION : BinaryMapFormat.EXTENSION)));
+        }
+    }
+
+    private static void convert(Path in, Path out) throws IOException {
+        try {
+            byte[] data = Files.readAllBytes(in);
+            Map map = MapParser.parse(data);
+            byte[] converted = out.getFileName().toString().endsWith(BinaryMapFormat.EXTENSION)
+                    ? BinaryMapFormat.write(map) : toText(map);
+            Files.write(out, converted);
+            System.out.println(in + " -> " + out + ": " + data.length + " -> " + converted.length + " bytes");
+        } catch (InvalidMapException e) {
+            System.out.println(in + ": invalid map, " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The current state of the map in the map text format
+     */
+    public static byte[] toText(Map map) {
+        int rows = map.getRows();
+        int cols = map.getCols();
+        StringBuilder sb = new StringBuilder(rows * (cols + 1) + 16);
+        sb.append(rows).append('\n').append(cols).append('\n');
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                boolean dest = map.isDestTile(r, c);
+                if (map.isWall(r, c))
+                    sb.append('#');
+                else if (map.hasCrate(r, c))
+                    sb.append(dest ? '$' : 'c');
+                else if (r == map.getPlayerR() && c == map.getPlayerC())
+                    sb.append(dest ? '&' : '@');
+                else
+                    sb.append(dest ? 'C' : '.');
+            }
+            sb.append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
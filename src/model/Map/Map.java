@@ -2,29 +2,91 @@ package model.Map;
 
 import model.Exceptions.InvalidMapException;
 import model.Exceptions.InvalidNumberOfPlayersException;
+import model.Exceptions.MalformedMapException;
 import model.Exceptions.UnknownElementException;
 import model.Map.Occupant.Crate;
+import model.Map.Occupant.Occupant;
 import model.Map.Occupant.Player;
 import model.Map.Occupiable.DestTile;
 import model.Map.Occupiable.Occupiable;
 import model.Map.Occupiable.Tile;
-import viewmodel.LevelEditorCanvas;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
- * A class holding a the 2D array of cells, representing the world map
+ * A class holding the world map.
+ * <p>
+ * The board is stored in packed primitive form: a static byte mask of walls and destinations, a bitset of crate
+ * positions, and the index of the player. The board is padded with a ring of walls, so that a move can never
+ * step outside of the arrays and needs no bounds check. The {@link Cell} object graph returned by
+ * {@link #getCells()} is only built on demand, and is kept in sync with the packed board from then on.
  */
 public class Map {
-    private Cell[][] cells;
-    private ArrayList<DestTile> destTiles = new ArrayList<>();
-    private ArrayList<Crate> crates = new ArrayList<>();
+    static final byte WALL = 1;
+    static final byte DEST = 2;
+    //extra bits of the cell codes, which are never stored in the board itself
+    private static final int CRATE = 4;
+    private static final int PLAYER = 8;
+    private static final int VALID = 16;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    //maximum number of changed cells remembered between two renders, beyond that everything is repainted
+    private static final int MAX_DIRTY = 64;
+
+    //maps every byte of the map file format to a cell code, 0 for characters which are not map elements
+    private static final byte[] CELL_CODES = new byte[256];
+
+    static {
+        CELL_CODES['.'] = VALID;
+        CELL_CODES['@'] = VALID | PLAYER;
+        CELL_CODES['&'] = VALID | PLAYER | DEST;
+        CELL_CODES['c'] = VALID | CRATE;
+        CELL_CODES['$'] = VALID | CRATE | DEST;
+        CELL_CODES['#'] = VALID | WALL;
+        CELL_CODES['C'] = VALID | DEST;
+    }
+
+    private int rows;
+    private int cols;
+    private int stride;
+    //board index offsets of the directions, in the order of DIRECTIONS
+    private int[] deltas;
+
+    private byte[] board;
+    private long[] crates;
+    private int numCrates;
+    private int numDestTiles;
+    private int numCratesOnDest;
+    private int player;
+    private boolean lastMovePushed;
+
+    //smallest board index the player can walk to, -1 when unknown or a push may have changed the player's region
+    private int region;
+    private long[] regionVisited;
+    //search state of findWalk, allocated on first use and cleared after every search
+    private long[] walkVisited;
+    private int[] walkSteps;
+    private byte[] walkFrom;
+    private int[] walkTouched;
+    private int[] walkToward;
+    private int[] walkAway;
 
-    private Player player;
+    private DeadlockDetector deadlockDetector;
+    private boolean deadlocked;
+
+    //board indices of the cells changed since the last render
+    private final int[] dirty = new int[MAX_DIRTY];
+    private int numDirty;
+    private boolean allDirty = true;
+
+    //lazily built object view of the board, null until someone asks for it
+    private Cell[][] cells;
+    private ArrayList<DestTile> destTiles;
+    private ArrayList<Crate> crateList;
 
     /**
-     * This function instantiates and initializes cells, destTiles, crates to the correct map elements (e.g. the # char
-     * means a wall, @ the player, etc).
+     * This function initializes the packed board from the map elements (e.g. the # char means a wall, @ the
+     * player, etc).
      *
      * @param rows The number of rows in the map
      * @param cols The number of columns in the map
@@ -32,85 +94,500 @@ public class Map {
      * @throws InvalidMapException Throw the correct exception when necessary. There should only be 1 player.
      */
     public void initialize(int rows, int cols, char[][] rep) throws InvalidMapException {
-        cells = new Cell[rows][cols];
-        destTiles = new ArrayList<>();
-        crates = new ArrayList<>();
-        player = null;
-
+        beginInitialize(rows, cols);
         for (int r = 0; r < rows; r++) {
             for (int c = 0; c < cols; c++) {
-                LevelEditorCanvas.Brush b = LevelEditorCanvas.Brush.fromChar(rep[r][c]);
-                if (b == null)
-                    throw new UnknownElementException("Unknown char: " + rep[r][c]);
-
-                switch (b) {
-                    case TILE:
-                        cells[r][c] = new Tile();
-                        break;
-                    case PLAYER_ON_TILE:
-                        if (player == null) {
-                            player = new Player(r, c);
-                            Tile t = new Tile();
-                            cells[r][c] = t;
-                            t.setOccupant(player);
-                        } else {
-                            throw new InvalidNumberOfPlayersException(">1 players found!");
-                        }
-                        break;
-                    case PLAYER_ON_DEST:
-                        if (player == null) {
-                            player = new Player(r, c);
-                            DestTile t = new DestTile();
-                            destTiles.add(t);
-                            cells[r][c] = t;
-                            t.setOccupant(player);
-                        } else {
-                            throw new InvalidNumberOfPlayersException(">1 players found!");
-                        }
-                        break;
-                    case CRATE_ON_TILE:
-                        Crate crate = new Crate(r, c);
-                        crates.add(crate);
-                        Tile t = new Tile();
-                        cells[r][c] = t;
-                        t.setOccupant(crate);
-                        break;
-                    case CRATE_ON_DEST:
-                        Crate crate2 = new Crate(r, c);
-                        crates.add(crate2);
-                        DestTile t2 = new DestTile();
-                        destTiles.add(t2);
-                        cells[r][c] = t2;
-                        t2.setOccupant(crate2);
-                        break;
-                    case WALL:
-                        cells[r][c] = new Wall();
-                        break;
-                    case DEST:
-                        DestTile d = new DestTile();
-                        cells[r][c] = d;
-                        destTiles.add(d);
-                        break;
-                }
+                char ch = rep[r][c];
+                int code = ch < 256 ? CELL_CODES[ch] : 0;
+                if (code == 0)
+                    throw new UnknownElementException("Unknown char: " + ch);
+                setCell(r, c, code);
             }
         }
+        endInitialize();
+    }
+
+    /**
+     * @param ch A character of the map file format
+     * @return The cell code of the character, or 0 if it is not a valid map element
+     */
+    static int decode(int ch) {
+        return CELL_CODES[ch & 0xFF];
+    }
+
+    /**
+     * Checks the size of a map read from a file before its board is allocated: the board, padded with a border of
+     * walls, must fit an array
+     *
+     * @throws MalformedMapException when the size is not positive or the board would be too large
+     */
+    static void checkSize(int rows, int cols) throws MalformedMapException {
+        if (rows <= 0 || cols <= 0 || (long) (rows + 2) * (cols + 2) > Integer.MAX_VALUE - 8)
+            throw new MalformedMapException("Invalid map size " + rows + "x" + cols);
+    }
+
+    /**
+     * Starts initializing an empty board. Every cell must then be filled with {@link #setCell(int, int, int)}
+     * before calling {@link #endInitialize()}.
+     */
+    void beginInitialize(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = cols + 2;
+        this.deltas = new int[]{-stride, stride, -1, 1};
+        this.board = new byte[(rows + 2) * stride];
+        this.crates = new long[(board.length + 63) >>> 6];
+        this.numCrates = 0;
+        this.numDestTiles = 0;
+        this.numCratesOnDest = 0;
+        this.player = -1;
+        resetDerivedState();
+        Arrays.fill(board, WALL);
+    }
+
+    /**
+     * @param code A non-zero cell code returned by {@link #decode(int)}
+     */
+    void setCell(int r, int c, int code) throws InvalidNumberOfPlayersException {
+        int i = index(r, c);
+        board[i] = (byte) (code & (WALL | DEST));
+        if ((code & DEST) != 0)
+            numDestTiles++;
+        if ((code & CRATE) != 0) {
+            setCrate(i);
+            numCrates++;
+            if ((code & DEST) != 0)
+                numCratesOnDest++;
+        }
+        if ((code & PLAYER) != 0) {
+            if (player >= 0)
+                throw new InvalidNumberOfPlayersException(">1 players found!");
+            player = i;
+        }
+    }
 
-        if (null == player)
+    void endInitialize() throws InvalidNumberOfPlayersException {
+        if (player < 0)
             throw new InvalidNumberOfPlayersException("0 players found!");
+
+        deadlockDetector = new DeadlockDetector(this);
+        deadlocked = deadlockDetector.isDeadlocked();
+    }
+
+    /**
+     * Restores the map to a snapshot taken with {@link #snapshot()}. The static board and dead square bitmap are
+     * shared with the snapshot, only the crate bitset is copied, so this is much cheaper than parsing the level.
+     *
+     * @param snapshot The snapshot to restore
+     */
+    public void initialize(MapSnapshot snapshot) {
+        this.rows = snapshot.rows;
+        this.cols = snapshot.cols;
+        this.stride = cols + 2;
+        this.deltas = new int[]{-stride, stride, -1, 1};
+        this.board = snapshot.board;
+        this.crates = snapshot.crates.clone();
+        this.numCrates = snapshot.numCrates;
+        this.numDestTiles = snapshot.numDestTiles;
+        this.numCratesOnDest = snapshot.numCratesOnDest;
+        this.player = snapshot.player;
+        resetDerivedState();
+
+        deadlockDetector = new DeadlockDetector(this, snapshot.liveSquares);
+        deadlocked = snapshot.deadlocked;
+    }
+
+    /**
+     * @return An immutable copy of the current position, which can be restored any number of times
+     */
+    public MapSnapshot snapshot() {
+        return new MapSnapshot(rows, cols, board, crates.clone(), numCrates, numDestTiles, numCratesOnDest, player,
+                deadlockDetector.getLiveSquares(), deadlocked);
+    }
+
+    private void resetDerivedState() {
+        this.lastMovePushed = false;
+        this.region = -1;
+        this.regionVisited = null;
+        this.walkVisited = null;
+        this.walkSteps = null;
+        this.walkFrom = null;
+        this.walkTouched = null;
+        this.walkToward = null;
+        this.walkAway = null;
+        this.cells = null;
+        this.destTiles = null;
+        this.crateList = null;
+        this.numDirty = 0;
+        this.allDirty = true;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    public int getPlayerR() {
+        return rowOf(player);
+    }
+
+    public int getPlayerC() {
+        return colOf(player);
+    }
+
+    public int getNumCrates() {
+        return numCrates;
+    }
+
+    public int getNumDestTiles() {
+        return numDestTiles;
+    }
+
+    /**
+     * @return The number of destination tiles currently holding a crate, maintained on every push
+     */
+    public int getNumCratesOnDest() {
+        return numCratesOnDest;
+    }
+
+    /**
+     * @return Whether the specified location is a wall. Out of bounds locations count as walls.
+     */
+    public boolean isWall(int r, int c) {
+        return !isValid(r, c) || (board[index(r, c)] & WALL) != 0;
+    }
+
+    /**
+     * @return Whether the specified location is a destination tile
+     */
+    public boolean isDestTile(int r, int c) {
+        return isValid(r, c) && (board[index(r, c)] & DEST) != 0;
+    }
+
+    /**
+     * @return Whether the specified location holds a crate
+     */
+    public boolean hasCrate(int r, int c) {
+        return isValid(r, c) && hasCrateAt(index(r, c));
+    }
+
+    /**
+     * Iterates the crates in board index order, e.g.
+     * {@code for (int i = map.nextCrate(0); i >= 0; i = map.nextCrate(i + 1))}.
+     *
+     * @param from The board index to start searching from, inclusive
+     * @return The board index of the next crate, or -1 if there are no more crates
+     */
+    public int nextCrate(int from) {
+        int w = from >>> 6;
+        if (w >= crates.length)
+            return -1;
+        long word = crates[w] & (-1L << from);
+        while (word == 0) {
+            if (++w == crates.length)
+                return -1;
+            word = crates[w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * @param index A board index, e.g. one returned by {@link #nextCrate(int)}
+     * @return The row coordinate of the index
+     */
+    public int rowOf(int index) {
+        return index / stride - 1;
+    }
+
+    /**
+     * @param index A board index, e.g. one returned by {@link #nextCrate(int)}
+     * @return The column coordinate of the index
+     */
+    public int colOf(int index) {
+        return index % stride - 1;
+    }
+
+    /**
+     * Walls and destinations never change during a level, and maps restored from the same snapshot share them, so
+     * this is a reference comparison.
+     *
+     * @param other Another map, or null
+     * @return Whether the other map has the same walls and destinations, e.g. because it is the same level restarted
+     */
+    public boolean hasSameLayout(Map other) {
+        return other != null && board == other.board;
+    }
+
+    /**
+     * A renderer only needs to redraw the cells a move has changed: the player's old and new cell, and the cell a
+     * crate was pushed onto. They are recorded until {@link #clearDirtyCells()}. When too many changes pile up
+     * between two renders, e.g. after a long redo, or when the map is (re)initialized, the whole map is reported
+     * as dirty instead.
+     *
+     * @return Whether every cell has to be redrawn
+     */
+    public boolean isAllDirty() {
+        return allDirty;
+    }
+
+    /**
+     * @return The number of changed cells, which may contain duplicates. Only meaningful when not {@link #isAllDirty()}
+     */
+    public int getNumDirtyCells() {
+        return numDirty;
+    }
+
+    /**
+     * @param k A number from 0 to {@link #getNumDirtyCells()} - 1
+     * @return The board index of a changed cell, see {@link #rowOf(int)} and {@link #colOf(int)}
+     */
+    public int getDirtyCell(int k) {
+        return dirty[k];
     }
 
+    /**
+     * Forgets the changed cells, once they have been rendered
+     */
+    public void clearDirtyCells() {
+        numDirty = 0;
+        allDirty = false;
+    }
+
+    /**
+     * A deadlock is permanent: once a push has created one, the level can no longer be won.
+     *
+     * @return Whether a crate is on a dead square or frozen off a destination
+     */
+    public boolean isDeadlocked() {
+        return deadlocked;
+    }
+
+    /**
+     * @return Whether a crate on the specified location can never be pushed onto any destination
+     */
+    public boolean isDeadSquare(int r, int c) {
+        return isValid(r, c) && deadlockDetector.isDeadSquare(index(r, c));
+    }
+
+    int stride() {
+        return stride;
+    }
+
+    int boardSize() {
+        return board.length;
+    }
+
+    boolean isWallAt(int i) {
+        return (board[i] & WALL) != 0;
+    }
+
+    boolean isDestAt(int i) {
+        return (board[i] & DEST) != 0;
+    }
+
+    int index(int r, int c) {
+        return (r + 1) * stride + c + 1;
+    }
+
+    int offset(Direction d) {
+        return d.dr * stride + d.dc;
+    }
+
+    boolean hasCrateAt(int i) {
+        return (crates[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private void setCrate(int i) {
+        crates[i >>> 6] |= 1L << i;
+    }
+
+    private void clearCrate(int i) {
+        crates[i >>> 6] &= ~(1L << i);
+    }
+
+    /**
+     * Finds a shortest walk of the player to the location which pushes no crate, over the cells where
+     * {@link #isOccupiableAndNotOccupiedWithCrate(int, int)}, using a visited bitset.
+     * <p>
+     * Cells are expanded breadth first in order of the shortest possible walk through them (an A* search with the
+     * Manhattan distance), and among equally short ones the most recently found first, so in open areas the search
+     * heads straight for the location instead of flooding a circle around the player. Every step changes the
+     * Manhattan distance by one, so two stacks, for steps towards and away from the location, serve as the priority
+     * queue. A location outside the player's region is rejected in O(1) while the region is known; a failed search
+     * has flooded the whole region, which is then remembered. The search arrays are allocated once per map and reused.
+     *
+     * @param r The row coordinate
+     * @param c The column coordinate
+     * @return The directions of the walk in order, empty if the player already stands there, or null if the
+     * location cannot be reached without pushing a crate
+     */
+    public Direction[] findWalk(int r, int c) {
+        if (!isOccupiableAndNotOccupiedWithCrate(r, c))
+            return null;
+        int target = index(r, c);
+        if (target == player)
+            return new Direction[0];
+        if (region >= 0 && (regionVisited[target >>> 6] & (1L << target)) == 0)
+            return null;
+        if (walkVisited == null) {
+            walkVisited = new long[crates.length];
+            walkSteps = new int[board.length];
+            walkFrom = new byte[board.length];
+            walkTouched = new int[board.length];
+            walkToward = new int[64];
+            walkAway = new int[64];
+        }
+        int targetRow = target / stride;
+        int targetCol = target % stride;
+        int[] toward = walkToward;
+        int[] away = walkAway;
+        int numToward = 0;
+        int numAway = 0;
+        int numTouched = 0;
+        int min = player;
+        boolean found = false;
+        //steps + 1 of the shortest walk found so far, 0 for cells not reached yet
+        walkSteps[player] = 1;
+        walkTouched[numTouched++] = player;
+        toward[numToward++] = player;
+        while (true) {
+            if (numToward == 0) {
+                if (numAway == 0)
+                    break;
+                //every walk through the cells left is two steps longer than the ones expanded so far
+                int[] swap = toward;
+                toward = away;
+                away = swap;
+                numToward = numAway;
+                numAway = 0;
+            }
+            int cur = toward[--numToward];
+            if ((walkVisited[cur >>> 6] & (1L << cur)) != 0)
+                continue;
+            walkVisited[cur >>> 6] |= 1L << cur;
+            if (cur == target) {
+                found = true;
+                break;
+            }
+            if (cur < min)
+                min = cur;
+            int row = cur / stride;
+            int col = cur % stride;
+            int steps = walkSteps[cur] + 1;
+            for (int d = 0; d < 4; d++) {
+                int next = cur + deltas[d];
+                if ((board[next] & WALL) != 0 || hasCrateAt(next) || (walkVisited[next >>> 6] & (1L << next)) != 0)
+                    continue;
+                if (walkSteps[next] == 0)
+                    walkTouched[numTouched++] = next;
+                else if (walkSteps[next] <= steps)
+                    continue;
+                walkSteps[next] = steps;
+                walkFrom[next] = (byte) d;
+                boolean closer = d == 0 ? row > targetRow : d == 1 ? row < targetRow : d == 2 ? col > targetCol : col < targetCol;
+                if (closer) {
+                    if (numToward == toward.length)
+                        toward = Arrays.copyOf(toward, numToward * 2);
+                    toward[numToward++] = next;
+                } else {
+                    if (numAway == away.length)
+                        away = Arrays.copyOf(away, numAway * 2);
+                    away[numAway++] = next;
+                }
+            }
+        }
+        //keep the stacks if they grew, whichever role they ended up in
+        walkToward = toward;
+        walkAway = away;
+
+        Direction[] walk = null;
+        if (found) {
+            int length = walkSteps[target] - 1;
+            walk = new Direction[length];
+            for (int i = target; i != player; i -= deltas[walkFrom[i]])
+                walk[--length] = DIRECTIONS[walkFrom[i]];
+        }
+        for (int k = 0; k < numTouched; k++)
+            walkSteps[walkTouched[k]] = 0;
+        if (!found) {
+            //the search visited exactly the player's region
+            long[] visited = walkVisited;
+            walkVisited = regionVisited != null ? regionVisited : new long[crates.length];
+            Arrays.fill(walkVisited, 0L);
+            regionVisited = visited;
+            region = min;
+        } else {
+            //only the words of reached cells are set, so clearing those is enough
+            for (int k = 0; k < numTouched; k++)
+                walkVisited[walkTouched[k] >>> 6] = 0L;
+        }
+        return walk;
+    }
+
+    /**
+     * @return The destination tiles of the lazily built object view
+     */
     public ArrayList<DestTile> getDestTiles() {
+        getCells();
         return destTiles;
     }
 
+    /**
+     * @return The crates of the lazily built object view
+     */
     public ArrayList<Crate> getCrates() {
-        return crates;
+        getCells();
+        return crateList;
     }
 
+    /**
+     * Builds the object view of the board on the first call. Moves made afterwards keep the view up to date.
+     *
+     * @return The 2D array of cells representing the current board
+     */
     public Cell[][] getCells() {
+        if (cells == null) {
+            buildView();
+        }
         return cells;
     }
 
+    private void buildView() {
+        cells = new Cell[rows][cols];
+        destTiles = new ArrayList<>();
+        crateList = new ArrayList<>();
+        Player playerView = new Player(getPlayerR(), getPlayerC());
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int i = index(r, c);
+                if ((board[i] & WALL) != 0) {
+                    cells[r][c] = new Wall();
+                    continue;
+                }
+                Tile t;
+                if ((board[i] & DEST) != 0) {
+                    DestTile d = new DestTile();
+                    destTiles.add(d);
+                    t = d;
+                } else {
+                    t = new Tile();
+                }
+                if (hasCrateAt(i)) {
+                    Crate crate = new Crate(r, c);
+                    crateList.add(crate);
+                    t.setOccupant(crate);
+                } else if (i == player) {
+                    t.setOccupant(playerView);
+                }
+                cells[r][c] = t;
+            }
+        }
+    }
+
     /**
      * Attempts to move the player in the specified direction. Note that the player only has the strength to push
      * one crate. It cannot push 2 or more crates simultaneously.
@@ -119,87 +596,113 @@ public class Map {
      * @return Whether the move was successful
      */
     public boolean movePlayer(Direction d) {
-        int curR = player.getR();
-        int curC = player.getC();
-
-        int newR = curR;
-        int newC = curC;
+        int delta = offset(d);
+        int next = player + delta;
 
-        switch (d) {
-            case UP:
-                newR--;
-                break;
-            case DOWN:
-                newR++;
-                break;
-            case LEFT:
-                newC--;
-                break;
-            case RIGHT:
-                newC++;
-                break;
+        lastMovePushed = false;
+        if ((board[next] & WALL) != 0) {
+            return false;
         }
+        if (hasCrateAt(next)) {
+            if (!moveCrate(next, delta)) {
+                return false;
+            }
+            lastMovePushed = true;
+        }
+        movePlayerTo(next);
+        return true;
+    }
 
-        if (isValid(newR, newC)) {
-            if (isOccupiableAndNotOccupiedWithCrate(newR, newC)) {
-                ((Occupiable) cells[curR][curC]).removeOccupant();
-                ((Occupiable) cells[newR][newC]).setOccupant(player);
-                player.setPos(newR, newC);
-                return true;
-            } else if (cells[newR][newC] instanceof Occupiable) {
-                if (moveCrate((Crate) ((Occupiable) cells[newR][newC]).getOccupant().get(), d)) {
-                    ((Occupiable) cells[curR][curC]).removeOccupant();
-                    ((Occupiable) cells[newR][newC]).setOccupant(player);
-                    player.setPos(newR, newC);
-                    return true;
-                }
+    /**
+     * @return Whether the last successful {@link #movePlayer(Direction)} pushed a crate
+     */
+    public boolean isLastMovePush() {
+        return lastMovePushed;
+    }
+
+    /**
+     * Reverts a move previously made with {@link #movePlayer(Direction)}: the player steps back against the
+     * direction, pulling the crate it pushed if there was one. The caller is responsible for only reverting moves
+     * that were actually made, in reverse order.
+     *
+     * @param d      The direction of the move being reverted
+     * @param pushed Whether the move being reverted pushed a crate
+     */
+    public void undoMove(Direction d, boolean pushed) {
+        int delta = offset(d);
+        int oldPlayer = player;
+        movePlayerTo(player - delta);
+        if (pushed) {
+            relocateCrate(oldPlayer + delta, oldPlayer);
+            if (deadlocked) {
+                deadlocked = deadlockDetector.isDeadlocked();
             }
         }
-        return false;
     }
 
     /**
      * Attempts to move the crate into the specified direction by 1 cell. Will only succeed if the destination
-     * implements the occupiable interface and is not currently occupied.
+     * is neither a wall nor occupied by another crate.
      *
-     * @param c The crate to be moved
-     * @param d The desired direction to move the crate in
+     * @param from  The board index of the crate to be moved
+     * @param delta The board index offset of the desired direction
      * @return Whether or not the move was successful
      */
-    private boolean moveCrate(Crate c, Direction d) {
-        int curR = c.getR();
-        int curC = c.getC();
+    private boolean moveCrate(int from, int delta) {
+        int to = from + delta;
+        if ((board[to] & WALL) != 0 || hasCrateAt(to)) {
+            return false;
+        }
+        relocateCrate(from, to);
+        if (!deadlocked) {
+            deadlocked = deadlockDetector.isDeadlockedAfterPush(to);
+        }
+        return true;
+    }
 
-        int newR = curR;
-        int newC = curC;
+    private void relocateCrate(int from, int to) {
+        clearCrate(from);
+        setCrate(to);
+        if ((board[from] & DEST) != 0)
+            numCratesOnDest--;
+        if ((board[to] & DEST) != 0)
+            numCratesOnDest++;
+        region = -1;
+        markDirty(from);
+        markDirty(to);
+        moveInView(from, to);
+    }
 
-        switch (d) {
-            case UP:
-                newR--;
-                break;
-            case DOWN:
-                newR++;
-                break;
-            case LEFT:
-                newC--;
-                break;
-            case RIGHT:
-                newC++;
-                break;
-        }
+    private void movePlayerTo(int to) {
+        markDirty(player);
+        markDirty(to);
+        moveInView(player, to);
+        player = to;
+    }
 
-        if (isOccupiableAndNotOccupiedWithCrate(newR, newC)) {
-            ((Occupiable) cells[curR][curC]).removeOccupant();
-            ((Occupiable) cells[newR][newC]).setOccupant(c);
-            c.setPos(newR, newC);
-            return true;
-        } else {
-            return false;
+    private void markDirty(int i) {
+        if (numDirty < MAX_DIRTY)
+            dirty[numDirty++] = i;
+        else
+            allDirty = true;
+    }
+
+    /**
+     * Moves the occupant between two cells of the object view, if the view has been built
+     */
+    private void moveInView(int from, int to) {
+        if (cells == null) {
+            return;
         }
+        Occupiable src = (Occupiable) cells[rowOf(from)][colOf(from)];
+        Occupant occupant = src.getOccupant().get();
+        src.removeOccupant();
+        ((Occupiable) cells[rowOf(to)][colOf(to)]).setOccupant(occupant);
+        occupant.setPos(rowOf(to), colOf(to));
     }
 
     private boolean isValid(int r, int c) {
-        return r >= 0 && r < cells.length && c >= 0 && c < cells[0].length;
+        return r >= 0 && r < rows && c >= 0 && c < cols;
     }
 
     /**
@@ -212,13 +715,19 @@ public class Map {
         if (!isValid(r, c)) {
             return false;
         }
-
-        return cells[r][c] instanceof Occupiable &&
-                (!((Occupiable) cells[r][c]).getOccupant().isPresent()
-                        || !(((Occupiable) cells[r][c]).getOccupant().get() instanceof Crate));
+        int i = index(r, c);
+        return (board[i] & WALL) == 0 && !hasCrateAt(i);
     }
 
     public enum Direction {
-        UP, DOWN, LEFT, RIGHT
+        UP(-1, 0), DOWN(1, 0), LEFT(0, -1), RIGHT(0, 1);
+
+        final int dr;
+        final int dc;
+
+        Direction(int dr, int dc) {
+            this.dr = dr;
+            this.dc = dc;
+        }
     }
 }
@@ -0,0 +1,107 @@
+package model.Map;
+
+import model.Exceptions.InvalidMapException;
+import model.Exceptions.MalformedMapException;
+import model.Exceptions.UnknownElementException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Parses the map text format: the number of rows and the number of columns, separated by whitespace, followed by
+ * one line per row. The file is read with a single {@link Files#readAllBytes(Path)} call and every byte is decoded
+ * through a 256-entry lookup table straight into the packed board, without building strings or a char grid.
+ * Characters after the last column of a row, e.g. a '\r', are ignored.
+ */
+public class MapParser {
+    private final byte[] data;
+    private int pos;
+    private int line = 1;
+
+    private MapParser(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * @param path The map file
+     * @return A new map initialized from the file
+     * @throws InvalidMapException when the map is invalid, with the row and column of the offending element
+     * @throws IOException         when the file cannot be read
+     */
+    public static Map parse(Path path) throws InvalidMapException, IOException {
+        return parse(Files.readAllBytes(path));
+    }
+
+    /**
+     * Files in the {@link BinaryMapFormat binary format} are recognised by their magic number, so both formats can
+     * be loaded through here regardless of the file name.
+     *
+     * @param data The contents of a map file
+     * @return A new map initialized from the data
+     * @throws InvalidMapException when the map is invalid, with the row and column of the offending element
+     */
+    public static Map parse(byte[] data) throws InvalidMapException {
+        if (BinaryMapFormat.isBinary(data))
+            return BinaryMapFormat.read(data);
+        return new MapParser(data).parseMap();
+    }
+
+    private Map parseMap() throws InvalidMapException {
+        int rows = readInt("rows");
+        int cols = readInt("cols");
+        skipLine();
+        Map.checkSize(rows, cols);
+        //every cell takes a byte, so a header promising more cells than the file holds is wrong
+        if ((long) rows * cols > data.length - Math.min(pos, data.length))
+            throw new MalformedMapException("Map size " + rows + "x" + cols + " is larger than the file");
+
+        Map map = new Map();
+        map.beginInitialize(rows, cols);
+        for (int r = 0; r < rows; r++) {
+            if (pos + cols > data.length)
+                throw new MalformedMapException("Unexpected end of file at row " + r);
+            for (int c = 0; c < cols; c++) {
+                byte b = data[pos + c];
+                int code = Map.decode(b);
+                if (code == 0) {
+                    if (b == '\n' || b == '\r')
+                        throw new MalformedMapException("Row " + r + " is too short: expected " + cols + " columns, found " + c);
+                    throw new UnknownElementException("Unknown char: " + (char) (b & 0xFF) + " at row " + r + ", col " + c);
+                }
+                map.setCell(r, c, code);
+            }
+            pos += cols;
+            skipLine();
+        }
+        map.endInitialize();
+        return map;
+    }
+
+    private int readInt(String what) throws MalformedMapException {
+        while (pos < data.length && isWhitespace(data[pos])) {
+            if (data[pos] == '\n')
+                line++;
+            pos++;
+        }
+        int start = pos;
+        long value = 0;
+        while (pos < data.length && data[pos] >= '0' && data[pos] <= '9' && value <= Integer.MAX_VALUE) {
+            value = value * 10 + (data[pos++] - '0');
+        }
+        if (pos == start || value > Integer.MAX_VALUE)
+            throw new MalformedMapException("Expected the number of " + what + " on line " + line);
+        return (int) value;
+    }
+
+    private void skipLine() {
+        while (pos < data.length && data[pos] != '\n')
+            pos++;
+        pos++;
+        line++;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
@@ -0,0 +1,48 @@
+package model.Map;
+
+/**
+ * An immutable copy of a map position, created by {@link Map#snapshot()} and restored with
+ * {@link Map#initialize(MapSnapshot)}. The arrays are never modified after construction, so a snapshot can be
+ * shared freely between threads and maps.
+ */
+public final class MapSnapshot {
+    final int rows;
+    final int cols;
+    final byte[] board;
+    final long[] crates;
+    final int numCrates;
+    final int numDestTiles;
+    final int numCratesOnDest;
+    final int player;
+    final long[] liveSquares;
+    final boolean deadlocked;
+
+    MapSnapshot(int rows, int cols, byte[] board, long[] crates, int numCrates, int numDestTiles, int numCratesOnDest,
+                int player, long[] liveSquares, boolean deadlocked) {
+        this.rows = rows;
+        this.cols = cols;
+        this.board = board;
+        this.crates = crates;
+        this.numCrates = numCrates;
+        this.numDestTiles = numDestTiles;
+        this.numCratesOnDest = numCratesOnDest;
+        this.player = player;
+        this.liveSquares = liveSquares;
+        this.deadlocked = deadlocked;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * @return Approximate heap footprint of the snapshot's arrays, in bytes
+     */
+    public long getSizeInBytes() {
+        return board.length + 8L * crates.length + 8L * liveSquares.length;
+    }
+}
@@ -0,0 +1,85 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A compact history of the moves made in a level, used for undo and redo. Each move takes 3 bits: 2 for the
+ * direction and 1 telling whether a crate was pushed, so 21 moves fit in a long and a million moves take about
+ * 381 KB. The array grows by doubling, so up to twice that may be allocated.
+ */
+class MoveLog {
+    private static final int BITS = 3;
+    private static final int PER_WORD = 64 / BITS;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private long[] words = new long[16];
+    //number of moves recorded, including undone moves that can still be redone
+    private int size;
+    //number of moves currently applied to the map
+    private int cursor;
+
+    static int encode(int direction, boolean pushed) {
+        return direction | (pushed ? 4 : 0);
+    }
+
+    static int direction(int move) {
+        return move & 3;
+    }
+
+    static boolean pushed(int move) {
+        return (move & 4) != 0;
+    }
+
+    /**
+     * Appends a move after the cursor, discarding any moves that could have been redone
+     */
+    void record(int move) {
+        if (cursor / PER_WORD >= words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+        int word = cursor / PER_WORD;
+        int shift = (cursor % PER_WORD) * BITS;
+        words[word] = (words[word] & ~((long) MASK << shift)) | ((long) move << shift);
+        cursor++;
+        size = cursor;
+    }
+
+    boolean canUndo() {
+        return cursor > 0;
+    }
+
+    boolean canRedo() {
+        return cursor < size;
+    }
+
+    /**
+     * @return The move to revert. Must only be called when {@link #canUndo()}
+     */
+    int undo() {
+        return get(--cursor);
+    }
+
+    /**
+     * @return The move to apply again. Must only be called when {@link #canRedo()}
+     */
+    int redo() {
+        return get(cursor++);
+    }
+
+    int getNumUndoable() {
+        return cursor;
+    }
+
+    int getNumRedoable() {
+        return size - cursor;
+    }
+
+    void clear() {
+        size = 0;
+        cursor = 0;
+    }
+
+    private int get(int i) {
+        return (int) (words[i / PER_WORD] >>> ((i % PER_WORD) * BITS)) & MASK;
+    }
+}
@@ -0,0 +1,232 @@
+package model;
+
+import model.Map.Map;
+import model.Map.MapSnapshot;
+
+/**
+ * Applies a whole move string to a level in a tight loop, without rendering, move history or listeners, e.g. to
+ * verify submitted solutions. A replay object reuses its map between runs, so a thread verifying many solutions
+ * should keep one; it must not be shared between threads.
+ * <p>
+ * Two notations are understood:
+ * <ul>
+ * <li>{@link Notation#WASD}, the keys of the game: w, a, s, d in either case</li>
+ * <li>{@link Notation#LURD}, the standard Sokoban notation: l, u, r, d for moves and L, U, R, D for pushes. A
+ * lowercase move that pushes a crate, or an uppercase one that does not, is illegal.</li>
+ * </ul>
+ * In both, whitespace is ignored and a move can be preceded by a repeat count of at least 1, as in run-length
+ * encoded solutions such as "3r2U". A count of 0, or one which is not followed by a move, is illegal.
+ */
+public class Replay {
+    private static final Map.Direction[] DIRECTIONS = Map.Direction.values();
+    //move codes: the direction in the low 2 bits, plus whether the move must or must not push
+    private static final int VALID = 4;
+    private static final int PUSH = 8;
+    private static final int NO_PUSH = 16;
+    private static final byte[] WASD_CODES = new byte[128];
+    private static final byte[] LURD_CODES = new byte[128];
+    //largest repeat count accepted, far more moves than any level needs
+    private static final int MAX_COUNT = 1_000_000_000;
+
+    static {
+        String wasd = "wsad";
+        String lurd = "udlr";
+        for (int d = 0; d < 4; d++) {
+            WASD_CODES[wasd.charAt(d)] = (byte) (d | VALID);
+            WASD_CODES[Character.toUpperCase(wasd.charAt(d))] = (byte) (d | VALID);
+            LURD_CODES[lurd.charAt(d)] = (byte) (d | VALID | NO_PUSH);
+            LURD_CODES[Character.toUpperCase(lurd.charAt(d))] = (byte) (d | VALID | PUSH);
+        }
+    }
+
+    private final Map map = new Map();
+
+    public enum Notation {
+        WASD, LURD;
+
+        /**
+         * @return WASD if the moves contain w, a or s, LURD if they contain l, u or r, or null if d is the only move
+         * letter, which means right in wasd but down in LURD
+         */
+        public static Notation detect(CharSequence moves) {
+            for (int i = 0; i < moves.length(); i++) {
+                char c = Character.toLowerCase(moves.charAt(i));
+                if (c == 'w' || c == 'a' || c == 's')
+                    return WASD;
+                if (c == 'l' || c == 'u' || c == 'r')
+                    return LURD;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The state reached by a replay
+     */
+    public static final class Result {
+        private final boolean win;
+        private final boolean deadlocked;
+        private final int numMoves;
+        private final int numPushes;
+        private final int illegalMove;
+        private final String error;
+        private final Notation notation;
+        private final boolean ambiguous;
+
+        Result(boolean win, boolean deadlocked, int numMoves, int numPushes, int illegalMove, String error,
+               Notation notation, boolean ambiguous) {
+            this.win = win;
+            this.deadlocked = deadlocked;
+            this.numMoves = numMoves;
+            this.numPushes = numPushes;
+            this.illegalMove = illegalMove;
+            this.error = error;
+            this.notation = notation;
+            this.ambiguous = ambiguous;
+        }
+
+        private Result asAmbiguous() {
+            return new Result(win, deadlocked, numMoves, numPushes, illegalMove, error, notation, true);
+        }
+
+        /**
+         * @return Whether every destination holds a crate after the last move made
+         */
+        public boolean isWin() {
+            return win;
+        }
+
+        public boolean isDeadlocked() {
+            return deadlocked;
+        }
+
+        /**
+         * @return Whether all moves were legal and the level is won at the end
+         */
+        public boolean isSolved() {
+            return win && illegalMove < 0;
+        }
+
+        /**
+         * @return The number of moves made, including pushes
+         */
+        public int getNumMoves() {
+            return numMoves;
+        }
+
+        public int getNumPushes() {
+            return numPushes;
+        }
+
+        /**
+         * @return The index in the move string of the first illegal move, at which the replay stopped, or -1
+         */
+        public int getIllegalMove() {
+            return illegalMove;
+        }
+
+        /**
+         * @return Why the move at {@link #getIllegalMove()} is illegal, or null
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * @return The notation the moves were read in
+         */
+        public Notation getNotation() {
+            return notation;
+        }
+
+        /**
+         * @return Whether the notation could not be told from the moves, so they were replayed in both
+         */
+        public boolean isAmbiguous() {
+            return ambiguous;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s, %d moves, %d pushes%s%s", win ? "win" : deadlocked ? "deadlock" : "not solved",
+                    numMoves, numPushes, illegalMove >= 0 ? ", illegal move at " + illegalMove + ": " + error : "",
+                    ambiguous ? ", only d moves, read as " + notation : "");
+        }
+    }
+
+    /**
+     * Replays the moves from the initial state of the level, detecting the notation. Moves whose only letter is d
+     * could be either, so they are replayed in both; the result in which the level is solved is returned, or else
+     * the one without an illegal move, preferring wasd, and it is marked {@link Result#isAmbiguous() ambiguous}.
+     */
+    public Result run(MapSnapshot level, CharSequence moves) {
+        Notation notation = Notation.detect(moves);
+        if (notation != null)
+            return run(level, moves, notation);
+        Result wasd = run(level, moves, Notation.WASD);
+        Result lurd = run(level, moves, Notation.LURD);
+        boolean preferLurd = lurd.isSolved() ? !wasd.isSolved() : wasd.getIllegalMove() >= 0 && lurd.getIllegalMove() < 0;
+        return (preferLurd ? lurd : wasd).asAmbiguous();
+    }
+
+    /**
+     * Replays the moves from the initial state of the level, stopping at the first illegal move
+     *
+     * @param level    The level
+     * @param moves    The move string
+     * @param notation The notation of the move string
+     * @return The state after the last legal move
+     */
+    public Result run(MapSnapshot level, CharSequence moves, Notation notation) {
+        map.initialize(level);
+        byte[] codes = notation == Notation.WASD ? WASD_CODES : LURD_CODES;
+        int numMoves = 0;
+        int numPushes = 0;
+        //the repeat count read so far and where it started, -1 if the next move has none
+        int count = -1;
+        int countStart = -1;
+        for (int i = 0; i < moves.length(); i++) {
+            char c = moves.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (count < 0) {
+                    count = 0;
+                    countStart = i;
+                }
+                if (count > (MAX_COUNT - (c - '0')) / 10)
+                    return stop(numMoves, numPushes, countStart, "repeat count larger than " + MAX_COUNT, notation);
+                count = count * 10 + (c - '0');
+                continue;
+            }
+            if (Character.isWhitespace(c))
+                continue;
+            if (count == 0)
+                return stop(numMoves, numPushes, countStart, "repeat count of 0", notation);
+            int code = c < 128 ? codes[c] : 0;
+            if (code == 0)
+                return stop(numMoves, numPushes, i, "unknown move '" + c + "'", notation);
+            Map.Direction direction = DIRECTIONS[code & 3];
+            for (int n = Math.max(count, 1); n > 0; n--) {
+                if (!map.movePlayer(direction))
+                    return stop(numMoves, numPushes, i, "blocked", notation);
+                boolean pushed = map.isLastMovePush();
+                if ((pushed && (code & NO_PUSH) != 0) || (!pushed && (code & PUSH) != 0)) {
+                    map.undoMove(direction, pushed);
+                    return stop(numMoves, numPushes, i,
+                            pushed ? "pushed a crate, expected a move" : "did not push a crate, expected a push", notation);
+                }
+                numMoves++;
+                if (pushed)
+                    numPushes++;
+            }
+            count = -1;
+        }
+        if (count >= 0)
+            return stop(numMoves, numPushes, countStart, "repeat count without a move", notation);
+        return stop(numMoves, numPushes, -1, null, notation);
+    }
+
+    private Result stop(int numMoves, int numPushes, int illegalMove, String error, Notation notation) {
+        return new Result(map.getNumCratesOnDest() == map.getNumDestTiles(), map.isDeadlocked(), numMoves, numPushes,
+                illegalMove, error, notation, false);
+    }
+}
@@ -0,0 +1,111 @@
+package model;
+
+import model.Exceptions.InvalidMapException;
+import model.Map.MapSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Creates and tracks many independent {@link GameSession game sessions}, e.g. for a service checking submitted
+ * solutions, where {@link LevelManager} only holds the single level played in the UI.
+ * <p>
+ * Levels are loaded through {@link LevelCache}, so opening many sessions of the same level parses it only once and
+ * every session starts from the shared snapshot. Work on sessions can be run on the manager's pool of daemon
+ * threads, one task per session at a time.
+ */
+public class SessionManager implements AutoCloseable {
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService executor;
+
+    /**
+     * Runs tasks on one thread per available processor
+     */
+    public SessionManager() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads The number of threads running tasks submitted with {@link #submit(GameSession, Function)}
+     */
+    public SessionManager(int threads) {
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "sessions");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @param levelFile A level file
+     * @return A new session playing the level from its initial state
+     * @throws InvalidMapException when the map is invalid
+     * @throws IOException         when the file cannot be read
+     */
+    public GameSession open(Path levelFile) throws InvalidMapException, IOException {
+        return add(levelFile.getFileName().toString(), LevelCache.getInstance().get(levelFile.toString()));
+    }
+
+    /**
+     * @param level A level inside a pack
+     * @return A new session playing the level from its initial state
+     * @throws InvalidMapException when the map is invalid
+     * @throws IOException         when the pack cannot be read
+     */
+    public GameSession open(LevelPack.Entry level) throws InvalidMapException, IOException {
+        return add(level.getName(), LevelCache.getInstance().get(level));
+    }
+
+    private GameSession add(String levelName, MapSnapshot snapshot) {
+        GameSession session = new GameSession(nextId.getAndIncrement(), levelName, snapshot);
+        sessions.put(session.getId(), session);
+        return session;
+    }
+
+    /**
+     * @return The open session with the id, or null if there is none
+     */
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Forgets the session. It can still be used by whoever holds it, but is no longer tracked.
+     */
+    public void close(GameSession session) {
+        sessions.remove(session.getId());
+    }
+
+    public int getNumSessions() {
+        return sessions.size();
+    }
+
+    /**
+     * Runs a task on the session on the manager's threads. The session is locked while the task runs, so tasks
+     * submitted for the same session run one at a time.
+     *
+     * @return A future completing with the result of the task
+     */
+    public <T> CompletableFuture<T> submit(GameSession session, Function<GameSession, T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            synchronized (session) {
+                return task.apply(session);
+            }
+        }, executor);
+    }
+
+    /**
+     * Stops the threads of the manager. Tasks already submitted still run.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
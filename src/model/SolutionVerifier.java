@@ -0,0 +1,78 @@
+package model;
+
+import model.Exceptions.InvalidMapException;
+import model.Map.MapSnapshot;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies a directory of solutions in parallel with {@link Replay}.
+ * <p>
+ * Usage: SolutionVerifier levels solutions [report]. Every file named &lt;level name&gt;.sol in the solutions
+ * directory holds a move string in wasd or LURD notation for the level of that name in the levels directory, as
+ * listed by {@link LevelManager#getLevelNames()}, so levels inside packs can be verified as well. The notation is
+ * detected from each move string; strings of only d moves are tried in both, see {@link Replay#run(MapSnapshot,
+ * CharSequence)}. The report, one tab separated line per solution, is printed or written to the report file.
+ */
+public class SolutionVerifier {
+    public static final String EXTENSION = ".sol";
+
+    //one replay per thread, so that each reuses its map
+    private static final ThreadLocal<Replay> replays = ThreadLocal.withInitial(Replay::new);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SolutionVerifier levels solutions [report]");
+            return;
+        }
+        LevelManager.getInstance().setMapDirectory(args[0]);
+        LevelManager.getInstance().loadLevelNamesFromDisk();
+        List<Path> solutions;
+        try (var files = Files.list(Paths.get(args[1]))) {
+            solutions = files.filter(path -> path.getFileName().toString().endsWith(EXTENSION))
+                    .sorted().collect(Collectors.toList());
+        }
+
+        long start = System.nanoTime();
+        List<String> lines = solutions.parallelStream().map(SolutionVerifier::verify).collect(Collectors.toList());
+        long nanos = System.nanoTime() - start;
+        long solved = lines.stream().filter(line -> line.contains("\tsolved\t")).count();
+        long moves = lines.stream().mapToLong(line -> Long.parseLong(line.split("\t")[2])).sum();
+
+        Writer writer = args.length < 3 ? new PrintWriter(System.out) : Files.newBufferedWriter(Paths.get(args[2]));
+        try (PrintWriter out = new PrintWriter(writer)) {
+            out.printf("# %d solutions verified in %.1f ms: %d solved, %d not solved; %d moves, %.1fM moves/s%n",
+                    lines.size(), nanos / 1e6, solved, lines.size() - solved, moves, moves / (nanos / 1e3));
+            lines.forEach(out::println);
+        }
+    }
+
+    /**
+     * @return name, solved/unsolved/illegal/invalid, moves, pushes, time, and what went wrong if anything
+     */
+    private static String verify(Path solution) {
+        String file = solution.getFileName().toString();
+        String levelName = file.substring(0, file.length() - EXTENSION.length());
+        long start = System.nanoTime();
+        try {
+            String moves = new String(Files.readAllBytes(solution), StandardCharsets.US_ASCII);
+            LevelPack.Entry packLevel = LevelManager.getInstance().getPackLevel(levelName);
+            MapSnapshot level = packLevel != null ? LevelCache.getInstance().get(packLevel)
+                    : LevelCache.getInstance().get(LevelManager.getInstance().getLevelPath(levelName).toString());
+            Replay.Result result = replays.get().run(level, moves);
+            String status = result.getIllegalMove() >= 0 ? "illegal" : result.isSolved() ? "solved" : "unsolved";
+            return String.format("%s\t%s\t%d\t%d\t%.3f ms\t%s", levelName, status, result.getNumMoves(),
+                    result.getNumPushes(), (System.nanoTime() - start) / 1e6, result);
+        } catch (InvalidMapException | IOException e) {
+            return String.format("%s\tinvalid\t0\t0\t%.3f ms\t%s", levelName, (System.nanoTime() - start) / 1e6, e);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package model.Solver;
+
+import model.Map.Map;
+
+import java.util.Arrays;
+
+/**
+ * The static part of a level as seen by the solver. Only floor cells the player can ever reach are kept, and they
+ * are renumbered 0..size-1 so that a crate position fits in a char.
+ */
+final class CompactBoard {
+    //same order as Map.Direction: up, down, left, right
+    static final int[] DR = {-1, 1, 0, 0};
+    static final int[] DC = {0, 0, -1, 1};
+    static final char[] MOVE_CHARS = {'w', 's', 'a', 'd'};
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+    static final int MAX_SIZE = Character.MAX_VALUE;
+
+    final int size;
+    final int[] rowOf;
+    final int[] colOf;
+    //neighbours[cell * 4 + dir], -1 when the neighbour is a wall
+    final int[] neighbours;
+    final boolean[] goal;
+    final int numGoals;
+    //minimum number of pushes to bring a crate from the cell onto any goal, ignoring other crates
+    final int[] pushDistance;
+    final char[] initialCrates;
+    final int initialPlayer;
+    //false when the level is trivially unsolvable, e.g. a goal or a loose crate is out of the player's reach
+    final boolean feasible;
+    final boolean balanced;
+
+    CompactBoard(Map map) {
+        int rows = map.getRows();
+        int cols = map.getCols();
+        int[] ids = new int[rows * cols];
+        Arrays.fill(ids, -1);
+
+        //flood fill the floor reachable from the player, ignoring crates
+        int[] queue = new int[rows * cols];
+        int head = 0;
+        int tail = 0;
+        int start = map.getPlayerR() * cols + map.getPlayerC();
+        ids[start] = tail;
+        queue[tail++] = start;
+        while (head < tail) {
+            int cur = queue[head++];
+            int r = cur / cols;
+            int c = cur % cols;
+            for (int d = 0; d < 4; d++) {
+                int nr = r + DR[d];
+                int nc = c + DC[d];
+                if (!map.isWall(nr, nc) && ids[nr * cols + nc] < 0) {
+                    ids[nr * cols + nc] = tail;
+                    queue[tail++] = nr * cols + nc;
+                }
+            }
+        }
+
+        size = tail;
+        rowOf = new int[size];
+        colOf = new int[size];
+        neighbours = new int[size * 4];
+        goal = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            int r = queue[i] / cols;
+            int c = queue[i] % cols;
+            rowOf[i] = r;
+            colOf[i] = c;
+            goal[i] = map.isDestTile(r, c);
+            for (int d = 0; d < 4; d++) {
+                int nr = r + DR[d];
+                int nc = c + DC[d];
+                neighbours[i * 4 + d] = map.isWall(nr, nc) ? -1 : ids[nr * cols + nc];
+            }
+        }
+
+        int goals = 0;
+        int crates = 0;
+        boolean ok = true;
+        char[] crateList = new char[map.getNumCrates()];
+        for (int i = map.nextCrate(0); i >= 0; i = map.nextCrate(i + 1)) {
+            int r = map.rowOf(i);
+            int c = map.colOf(i);
+            int id = ids[r * cols + c];
+            if (id >= 0) {
+                crateList[crates++] = (char) id;
+            } else if (!map.isDestTile(r, c)) {
+                ok = false;
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (map.isDestTile(r, c)) {
+                    if (ids[r * cols + c] >= 0) {
+                        goals++;
+                    } else if (!map.hasCrate(r, c)) {
+                        ok = false;
+                    }
+                }
+            }
+        }
+        numGoals = goals;
+        balanced = crates == goals;
+        initialCrates = Arrays.copyOf(crateList, crates);
+        Arrays.sort(initialCrates);
+        initialPlayer = 0;
+        pushDistance = computePushDistances();
+        feasible = ok && crates >= goals && size <= MAX_SIZE;
+    }
+
+    static int opposite(int dir) {
+        return dir ^ 1;
+    }
+
+    /**
+     * Multi-source breadth first search which pulls a crate away from every goal. A cell that no goal can pull a
+     * crate onto is a dead square: a crate pushed there can never be solved.
+     */
+    private int[] computePushDistances() {
+        int[] dist = new int[size];
+        Arrays.fill(dist, UNREACHABLE);
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < size; i++) {
+            if (goal[i]) {
+                dist[i] = 0;
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            int cur = queue[head++];
+            for (int d = 0; d < 4; d++) {
+                int prev = neighbours[cur * 4 + d];
+                if (prev < 0 || dist[prev] != UNREACHABLE)
+                    continue;
+                //pulling the crate from cur to prev needs the player to stand on prev and step back beyond it
+                if (neighbours[prev * 4 + d] < 0)
+                    continue;
+                dist[prev] = dist[cur] + 1;
+                queue[tail++] = prev;
+            }
+        }
+        return dist;
+    }
+}
@@ -0,0 +1,189 @@
+package model.Solver;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Generates the successors of a {@link SearchNode}. Holds the scratch arrays for the player flood fill, so every
+ * search thread needs its own instance.
+ */
+final class Expander {
+    private final CompactBoard board;
+    private final Solver.Mode mode;
+
+    //a cell is marked when stamp[cell] == curStamp, which avoids clearing the arrays between flood fills
+    private final int[] reachStamp;
+    private final int[] crateStamp;
+    private final int[] dist;
+    private final int[] from;
+    private final int[] queue;
+    private int curStamp;
+
+    Expander(CompactBoard board, Solver.Mode mode) {
+        this.board = board;
+        this.mode = mode;
+        this.reachStamp = new int[board.size];
+        this.crateStamp = new int[board.size];
+        this.dist = new int[board.size];
+        this.from = new int[board.size];
+        this.queue = new int[board.size];
+    }
+
+    SearchNode root() {
+        int h = 0;
+        for (char c : board.initialCrates)
+            h += heuristic(c);
+        return new SearchNode(board.initialCrates, board.initialPlayer, 0, h, null, -1, -1);
+    }
+
+    private int heuristic(int cell) {
+        return board.balanced ? board.pushDistance[cell] : 0;
+    }
+
+    boolean isSolved(char[] crates) {
+        int onGoal = 0;
+        for (char c : crates) {
+            if (board.goal[c])
+                onGoal++;
+        }
+        return onGoal == board.numGoals;
+    }
+
+    /**
+     * Flood fills the cells the player can walk to without pushing, recording walking distances.
+     *
+     * @return The smallest reachable cell, which identifies the player's region
+     */
+    int reach(char[] crates, int player) {
+        int stamp = ++curStamp;
+        for (char c : crates)
+            crateStamp[c] = stamp;
+
+        int head = 0;
+        int tail = 0;
+        int min = player;
+        reachStamp[player] = stamp;
+        dist[player] = 0;
+        queue[tail++] = player;
+        while (head < tail) {
+            int cur = queue[head++];
+            for (int d = 0; d < 4; d++) {
+                int next = board.neighbours[cur * 4 + d];
+                if (next < 0 || reachStamp[next] == stamp || crateStamp[next] == stamp)
+                    continue;
+                reachStamp[next] = stamp;
+                dist[next] = dist[cur] + 1;
+                from[next] = cur * 4 + d;
+                queue[tail++] = next;
+                if (next < min)
+                    min = next;
+            }
+        }
+        return min;
+    }
+
+    /**
+     * @return The transposition key of the node. In push mode the player is normalised to its region, in move
+     * mode the exact position matters. {@link #reach(char[], int)} must have been called on the node.
+     */
+    StateKey key(SearchNode node, int region) {
+        return new StateKey(node.crates, mode == Solver.Mode.PUSHES ? region : node.player);
+    }
+
+    /**
+     * Adds every legal push from the node to out. {@link #reach(char[], int)} must have been called on the node.
+     */
+    void expand(SearchNode node, List<SearchNode> out) {
+        int stamp = curStamp;
+        char[] crates = node.crates;
+        for (int j = 0; j < crates.length; j++) {
+            int cell = crates[j];
+            for (int d = 0; d < 4; d++) {
+                int stand = board.neighbours[cell * 4 + CompactBoard.opposite(d)];
+                int to = board.neighbours[cell * 4 + d];
+                if (stand < 0 || to < 0 || reachStamp[stand] != stamp || crateStamp[to] == stamp)
+                    continue;
+                if (board.balanced && board.pushDistance[to] == CompactBoard.UNREACHABLE)
+                    continue;
+
+                int g = node.g + (mode == Solver.Mode.PUSHES ? 1 : dist[stand] + 1);
+                int h = node.h - heuristic(cell) + heuristic(to);
+                out.add(new SearchNode(moveCrate(crates, j, (char) to), cell, g, h, node, cell, d));
+            }
+        }
+    }
+
+    /**
+     * @return A copy of crates with crates[j] replaced by to, kept sorted
+     */
+    private static char[] moveCrate(char[] crates, int j, char to) {
+        char[] next = crates.clone();
+        while (j > 0 && next[j - 1] > to) {
+            next[j] = next[j - 1];
+            j--;
+        }
+        while (j < next.length - 1 && next[j + 1] < to) {
+            next[j] = next[j + 1];
+            j++;
+        }
+        next[j] = to;
+        return next;
+    }
+
+    /**
+     * Replays the pushes from the root to the goal node, filling in the walking moves between pushes.
+     *
+     * @return The full move sequence as w/a/s/d chars
+     */
+    String reconstruct(SearchNode goal) {
+        SearchNode[] path = new SearchNode[goal.depth() + 1];
+        int i = path.length;
+        for (SearchNode n = goal; n != null; n = n.parent)
+            path[--i] = n;
+
+        StringBuilder moves = new StringBuilder();
+        char[] walk = new char[board.size];
+        for (i = 1; i < path.length; i++) {
+            SearchNode prev = path[i - 1];
+            SearchNode cur = path[i];
+            int stand = board.neighbours[cur.pushFrom * 4 + CompactBoard.opposite(cur.dir)];
+            reach(prev.crates, prev.player);
+
+            int len = 0;
+            for (int c = stand; c != prev.player; c = from[c] / 4)
+                walk[len++] = CompactBoard.MOVE_CHARS[from[c] % 4];
+            for (int k = len - 1; k >= 0; k--)
+                moves.append(walk[k]);
+            moves.append(CompactBoard.MOVE_CHARS[cur.dir]);
+        }
+        return moves.toString();
+    }
+
+    /**
+     * Transposition table key: the sorted crate cells plus the player cell or region.
+     */
+    static final class StateKey {
+        private final char[] crates;
+        private final int player;
+        private final int hash;
+
+        StateKey(char[] crates, int player) {
+            this.crates = crates;
+            this.player = player;
+            this.hash = Arrays.hashCode(crates) * 31 + player;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StateKey))
+                return false;
+            StateKey other = (StateKey) o;
+            return player == other.player && hash == other.hash && Arrays.equals(crates, other.crates);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package model.Solver;
+
+import model.GameLevel;
+import model.Map.Map;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Multi-core variant of {@link Solver}. The search proceeds in f-contours: every node whose f value equals the
+ * current bound is expanded in parallel waves on a work-stealing {@link ForkJoinPool}, children with the same f
+ * join the next wave and the rest are parked in buckets for later contours. Because the heuristic is consistent,
+ * the first goal found in the lowest contour is optimal, just like with the sequential A*.
+ * <p>
+ * The transposition table is a {@link ConcurrentHashMap} shared by all workers. Cancellation is cooperative:
+ * workers poll a flag of the run between nodes, which is raised by {@link #cancel()}, by a found solution or by a
+ * budget.
+ */
+public class ParallelSolver {
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private final Map map;
+    private final int parallelism;
+    private Solver.Mode mode = Solver.Mode.PUSHES;
+    private long nodeBudget = 5_000_000L;
+    private long timeBudgetMillis = 30_000L;
+
+    //number of solve() calls finished, and the run the last cancel() applies to, counting from 1
+    private final AtomicLong finishedRuns = new AtomicLong();
+    private final AtomicLong cancelledRun = new AtomicLong();
+
+    public ParallelSolver(Map map, int parallelism) {
+        this.map = map;
+        this.parallelism = parallelism;
+    }
+
+    public ParallelSolver(GameLevel level, int parallelism) {
+        this(level.getMap(), parallelism);
+    }
+
+    public ParallelSolver setMode(Solver.Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * @param nodeBudget The maximum number of nodes to expand, summed over all workers, before giving up
+     */
+    public ParallelSolver setNodeBudget(long nodeBudget) {
+        this.nodeBudget = nodeBudget;
+        return this;
+    }
+
+    /**
+     * @param timeBudgetMillis The maximum wall-clock time to search for before giving up
+     */
+    public ParallelSolver setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        return this;
+    }
+
+    /**
+     * Asks a running {@link #solve()} to stop, or if none is running, the next one, e.g. one which is still waiting
+     * to be started on another thread. Safe to call from any thread.
+     */
+    public void cancel() {
+        cancelledRun.set(finishedRuns.get() + 1);
+    }
+
+    /**
+     * Runs the search on the current state of the map, blocking until it completes.
+     *
+     * @return The result, holding the solution if one was found within the budgets
+     */
+    public SolverResult solve() {
+        try {
+            return solve(finishedRuns.get() + 1);
+        } finally {
+            finishedRuns.incrementAndGet();
+        }
+    }
+
+    private SolverResult solve(long run) {
+        long start = System.nanoTime();
+        CompactBoard board = new CompactBoard(map);
+        if (!board.feasible || Solver.hasDeadCrate(board)) {
+            return new SolverResult(SolverResult.Status.UNSOLVABLE, null, 0, 0, System.nanoTime() - start);
+        }
+
+        Search search = new Search(board, start + timeBudgetMillis * 1_000_000L, run);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            SearchNode root = search.expanders.get().root();
+            int bound = root.f();
+            ArrayList<SearchNode> wave = new ArrayList<>();
+            wave.add(root);
+            while (true) {
+                while (!wave.isEmpty() && !search.isStopped()) {
+                    pool.invoke(new ExpandTask(search, bound, wave.toArray(new SearchNode[0]), 0, wave.size()));
+                    wave = new ArrayList<>(search.nextWave);
+                    search.nextWave.clear();
+                }
+                if (search.isStopped() || search.buckets.isEmpty())
+                    break;
+                var next = search.buckets.pollFirstEntry();
+                bound = next.getKey();
+                wave = new ArrayList<>(next.getValue());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long elapsed = System.nanoTime() - start;
+        SearchNode goal = search.solution.get();
+        if (goal != null) {
+            String moves = search.expanders.get().reconstruct(goal);
+            return new SolverResult(SolverResult.Status.SOLVED, moves, goal.depth(), search.expanded.get(), elapsed);
+        }
+        SolverResult.Status status = search.stopReason.get();
+        if (status == null)
+            status = search.isCancelled() ? SolverResult.Status.CANCELLED : SolverResult.Status.UNSOLVABLE;
+        return new SolverResult(status, null, 0, search.expanded.get(), elapsed);
+    }
+
+    /**
+     * State shared between the workers of one {@link #solve()} call
+     */
+    private final class Search {
+        final ThreadLocal<Expander> expanders;
+        final ConcurrentHashMap<Expander.StateKey, Integer> visited = new ConcurrentHashMap<>();
+        final ConcurrentLinkedQueue<SearchNode> nextWave = new ConcurrentLinkedQueue<>();
+        final ConcurrentSkipListMap<Integer, ConcurrentLinkedQueue<SearchNode>> buckets = new ConcurrentSkipListMap<>();
+        final AtomicReference<SearchNode> solution = new AtomicReference<>();
+        final AtomicReference<SolverResult.Status> stopReason = new AtomicReference<>();
+        final AtomicLong expanded = new AtomicLong();
+        //raised by a found solution or a budget
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final long deadline;
+        final long run;
+
+        Search(CompactBoard board, long deadline, long run) {
+            this.expanders = ThreadLocal.withInitial(() -> new Expander(board, mode));
+            this.deadline = deadline;
+            this.run = run;
+        }
+
+        boolean isCancelled() {
+            return cancelledRun.get() == run;
+        }
+
+        boolean isStopped() {
+            return stopped.get() || isCancelled();
+        }
+
+        void stop(SolverResult.Status reason) {
+            stopReason.compareAndSet(null, reason);
+            stopped.set(true);
+        }
+
+        /**
+         * Records g as the best cost of the key, unless an equal or better cost is already known
+         *
+         * @return Whether the caller should expand the node
+         */
+        boolean claim(Expander.StateKey key, int g) {
+            Integer prev = visited.putIfAbsent(key, g);
+            while (prev != null) {
+                if (prev <= g || visited.replace(key, prev, g))
+                    return prev > g;
+                prev = visited.putIfAbsent(key, g);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Expands a slice of the current wave, splitting it in halves until it is small enough
+     */
+    private final class ExpandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Search search;
+        private final int bound;
+        private final SearchNode[] wave;
+        private final int lo;
+        private final int hi;
+
+        ExpandTask(Search search, int bound, SearchNode[] wave, int lo, int hi) {
+            this.search = search;
+            this.bound = bound;
+            this.wave = wave;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > SPLIT_THRESHOLD) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new ExpandTask(search, bound, wave, lo, mid), new ExpandTask(search, bound, wave, mid, hi));
+                return;
+            }
+
+            Expander expander = search.expanders.get();
+            ArrayList<SearchNode> children = new ArrayList<>();
+            for (int i = lo; i < hi && !search.isStopped(); i++) {
+                SearchNode node = wave[i];
+                int region = expander.reach(node.crates, node.player);
+                if (!search.claim(expander.key(node, region), node.g))
+                    continue;
+
+                if (expander.isSolved(node.crates)) {
+                    if (search.solution.compareAndSet(null, node))
+                        search.stopped.set(true);
+                    return;
+                }
+                long count = search.expanded.incrementAndGet();
+                if (count > nodeBudget) {
+                    search.stop(SolverResult.Status.NODE_BUDGET_EXCEEDED);
+                    return;
+                }
+                if ((count & 1023) == 0 && System.nanoTime() > search.deadline) {
+                    search.stop(SolverResult.Status.TIME_BUDGET_EXCEEDED);
+                    return;
+                }
+
+                children.clear();
+                expander.expand(node, children);
+                for (SearchNode child : children) {
+                    if (child.f() == bound) {
+                        search.nextWave.add(child);
+                    } else {
+                        search.buckets.computeIfAbsent(child.f(), f -> new ConcurrentLinkedQueue<>()).add(child);
+                    }
+                }
+            }
+        }
+    }
+}
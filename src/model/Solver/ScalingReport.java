@@ -0,0 +1,85 @@
+package model.Solver;
+
+import model.Exceptions.InvalidMapException;
+import model.GameLevel;
+import model.Map.Map;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.IntStream;
+
+/**
+ * Measures how {@link ParallelSolver} scales with the number of worker threads, running each level with 1, 2, 4, 8
+ * and N threads, N being the number of available cores.
+ * <p>
+ * Usage: ScalingReport mapDirectory [fileNameRegex] [repetitions]
+ */
+public class ScalingReport {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ScalingReport mapDirectory [fileNameRegex] [repetitions]");
+            return;
+        }
+        String filter = args.length > 1 ? args[1] : ".*(hard|extreme).*";
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        try (var mapFiles = Files.walk(Paths.get(args[0]), 1)) {
+            mapFiles.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().matches(filter))
+                    .sorted()
+                    .forEach(path -> report(path, repetitions));
+        }
+    }
+
+    private static void report(Path path, int repetitions) {
+        GameLevel level = new GameLevel();
+        try {
+            level.loadMap(path.toString());
+        } catch (InvalidMapException e) {
+            System.out.println(path.getFileName() + ": invalid map, " + e.getMessage());
+            return;
+        }
+        System.out.println(path.getFileName());
+        System.out.print(run(level.getMap(), defaultThreadCounts(), repetitions));
+    }
+
+    /**
+     * @return 1, 2, 4, 8 and the number of available cores, without duplicates
+     */
+    public static int[] defaultThreadCounts() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return IntStream.concat(IntStream.of(1, 2, 4, 8), IntStream.of(cores)).distinct().sorted().toArray();
+    }
+
+    /**
+     * Solves the map once per thread count, keeping the fastest of the repetitions, and tabulates wall-clock time,
+     * throughput and speedup relative to the first thread count. One untimed run warms up the JIT first, so the
+     * first thread count is not penalised.
+     *
+     * @return The report, one line per thread count
+     */
+    public static String run(Map map, int[] threadCounts, int repetitions) {
+        StringBuilder sb = new StringBuilder(String.format("%8s %10s %12s %14s %8s%n",
+                "threads", "ms", "nodes", "nodes/s", "speedup"));
+        new ParallelSolver(map, threadCounts[threadCounts.length - 1]).solve();
+        double baseline = 0;
+        for (int threads : threadCounts) {
+            SolverResult best = null;
+            for (int i = 0; i < repetitions; i++) {
+                SolverResult r = new ParallelSolver(map, threads).solve();
+                if (best == null || r.getElapsedMillis() < best.getElapsedMillis())
+                    best = r;
+            }
+            double ms = Math.max(best.getElapsedMillis(), 1);
+            if (baseline == 0)
+                baseline = ms;
+            sb.append(String.format("%8d %10d %12d %14.0f %7.2fx%s%n", threads, best.getElapsedMillis(),
+                    best.getNodesExpanded(), best.getNodesPerSecond(), baseline / ms,
+                    best.isSolved() ? "" : "  " + best.getStatus()));
+        }
+        return sb.toString();
+    }
+}
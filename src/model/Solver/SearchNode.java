@@ -0,0 +1,40 @@
+package model.Solver;
+
+/**
+ * A position in the push graph. Nodes only remember the push which created them, the full move sequence is
+ * rebuilt from the parent chain once a solution is found.
+ */
+final class SearchNode {
+    final char[] crates;
+    final int player;
+    final int g;
+    final int h;
+    final SearchNode parent;
+    //cell of the crate before the push that created this node, and the push direction
+    final int pushFrom;
+    final int dir;
+
+    SearchNode(char[] crates, int player, int g, int h, SearchNode parent, int pushFrom, int dir) {
+        this.crates = crates;
+        this.player = player;
+        this.g = g;
+        this.h = h;
+        this.parent = parent;
+        this.pushFrom = pushFrom;
+        this.dir = dir;
+    }
+
+    int f() {
+        return g + h;
+    }
+
+    /**
+     * @return The number of pushes from the root to this node
+     */
+    int depth() {
+        int pushes = 0;
+        for (SearchNode n = this; n.parent != null; n = n.parent)
+            pushes++;
+        return pushes;
+    }
+}
@@ -0,0 +1,124 @@
+package model.Solver;
+
+import model.GameLevel;
+import model.Map.Map;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * Headless A* Sokoban solver. The search runs over pushes: a state is the sorted list of crate cells plus the
+ * player's region (push mode) or exact cell (move mode), and walking moves are only filled in once a solution has
+ * been found. The heuristic is the sum of each crate's push distance to its nearest goal, which never overestimates,
+ * so the first solution found is push-optimal or move-optimal depending on {@link Mode}.
+ * <p>
+ * The map passed in is only read, never modified.
+ */
+public class Solver {
+    private final Map map;
+    private Mode mode = Mode.PUSHES;
+    private long nodeBudget = 5_000_000L;
+    private long timeBudgetMillis = 30_000L;
+
+    public Solver(Map map) {
+        this.map = map;
+    }
+
+    public Solver(GameLevel level) {
+        this(level.getMap());
+    }
+
+    public Solver setMode(Mode mode) {
+        this.mode = mode;
+        return this;
+    }
+
+    /**
+     * @param nodeBudget The maximum number of nodes to expand before giving up
+     */
+    public Solver setNodeBudget(long nodeBudget) {
+        this.nodeBudget = nodeBudget;
+        return this;
+    }
+
+    /**
+     * @param timeBudgetMillis The maximum wall-clock time to search for before giving up
+     */
+    public Solver setTimeBudgetMillis(long timeBudgetMillis) {
+        this.timeBudgetMillis = timeBudgetMillis;
+        return this;
+    }
+
+    /**
+     * Runs the search on the current state of the map.
+     *
+     * @return The result, holding the solution if one was found within the budgets
+     */
+    public SolverResult solve() {
+        long start = System.nanoTime();
+        long deadline = start + timeBudgetMillis * 1_000_000L;
+
+        CompactBoard board = new CompactBoard(map);
+        if (!board.feasible || hasDeadCrate(board)) {
+            return new SolverResult(SolverResult.Status.UNSOLVABLE, null, 0, 0, System.nanoTime() - start);
+        }
+
+        Expander expander = new Expander(board, mode);
+        PriorityQueue<SearchNode> open = new PriorityQueue<>((a, b) ->
+                a.f() != b.f() ? Integer.compare(a.f(), b.f()) : Integer.compare(a.h, b.h));
+        HashMap<Expander.StateKey, Integer> closed = new HashMap<>();
+        ArrayList<SearchNode> children = new ArrayList<>();
+        open.add(expander.root());
+
+        long expanded = 0;
+        while (!open.isEmpty()) {
+            SearchNode node = open.poll();
+            int region = expander.reach(node.crates, node.player);
+            Expander.StateKey key = expander.key(node, region);
+            Integer best = closed.get(key);
+            if (best != null && best <= node.g)
+                continue;
+            closed.put(key, node.g);
+
+            if (expander.isSolved(node.crates)) {
+                return new SolverResult(SolverResult.Status.SOLVED, expander.reconstruct(node), node.depth(),
+                        expanded, System.nanoTime() - start);
+            }
+            if (expanded >= nodeBudget) {
+                return new SolverResult(SolverResult.Status.NODE_BUDGET_EXCEEDED, null, 0, expanded,
+                        System.nanoTime() - start);
+            }
+            if ((expanded & 1023) == 0 && System.nanoTime() > deadline) {
+                return new SolverResult(SolverResult.Status.TIME_BUDGET_EXCEEDED, null, 0, expanded,
+                        System.nanoTime() - start);
+            }
+
+            expanded++;
+            children.clear();
+            expander.expand(node, children);
+            open.addAll(children);
+        }
+        return new SolverResult(SolverResult.Status.UNSOLVABLE, null, 0, expanded, System.nanoTime() - start);
+    }
+
+    /**
+     * @return Whether a crate already sits on a dead square, in which case the search can be skipped entirely
+     */
+    static boolean hasDeadCrate(CompactBoard board) {
+        if (!board.balanced)
+            return false;
+        for (char c : board.initialCrates) {
+            if (board.pushDistance[c] == CompactBoard.UNREACHABLE)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * What the solution should minimise
+     */
+    public enum Mode {
+        PUSHES, MOVES
+    }
+}
@@ -0,0 +1,48 @@
+package model.Solver;
+
+import model.Exceptions.InvalidMapException;
+import model.GameLevel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line entry point which solves every level in a map directory and prints the solver statistics, so that
+ * solver throughput can be compared across releases.
+ * <p>
+ * Usage: SolverMain mapDirectory [pushes|moves] [nodeBudget] [timeBudgetMillis]
+ */
+public class SolverMain {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SolverMain mapDirectory [pushes|moves] [nodeBudget] [timeBudgetMillis]");
+            return;
+        }
+        Solver.Mode mode = args.length > 1 && args[1].equalsIgnoreCase("moves") ? Solver.Mode.MOVES : Solver.Mode.PUSHES;
+        long nodeBudget = args.length > 2 ? Long.parseLong(args[2]) : 5_000_000L;
+        long timeBudget = args.length > 3 ? Long.parseLong(args[3]) : 30_000L;
+
+        try (var mapFiles = Files.walk(Paths.get(args[0]), 1)) {
+            mapFiles.filter(Files::isRegularFile).sorted().forEach(path -> solve(path, mode, nodeBudget, timeBudget));
+        }
+    }
+
+    private static void solve(Path path, Solver.Mode mode, long nodeBudget, long timeBudget) {
+        GameLevel level = new GameLevel();
+        try {
+            level.loadMap(path.toString());
+        } catch (InvalidMapException e) {
+            System.out.println(path.getFileName() + ": invalid map, " + e.getMessage());
+            return;
+        }
+        SolverResult result = new Solver(level).setMode(mode).setNodeBudget(nodeBudget)
+                .setTimeBudgetMillis(timeBudget).solve();
+        System.out.println(path.getFileName() + ": " + result);
+        if (result.isSolved()) {
+            System.out.println("  " + result.getSolution());
+        }
+    }
+}
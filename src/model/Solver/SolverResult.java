@@ -0,0 +1,66 @@
+package model.Solver;
+
+/**
+ * The outcome of a solver run, together with the statistics needed to track solver throughput.
+ */
+public final class SolverResult {
+    private final Status status;
+    private final String solution;
+    private final int numPushes;
+    private final long nodesExpanded;
+    private final long elapsedNanos;
+
+    SolverResult(Status status, String solution, int numPushes, long nodesExpanded, long elapsedNanos) {
+        this.status = status;
+        this.solution = solution;
+        this.numPushes = numPushes;
+        this.nodesExpanded = nodesExpanded;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSolved() {
+        return status == Status.SOLVED;
+    }
+
+    /**
+     * @return The solution as a string of w/a/s/d chars which can be replayed with
+     * {@link model.GameLevel#makeMove(char)}, or null if no solution was found
+     */
+    public String getSolution() {
+        return solution;
+    }
+
+    public int getNumMoves() {
+        return solution == null ? 0 : solution.length();
+    }
+
+    public int getNumPushes() {
+        return numPushes;
+    }
+
+    public long getNodesExpanded() {
+        return nodesExpanded;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodesExpanded * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d moves, %d pushes, %d nodes in %d ms (%.0f nodes/s)",
+                status, getNumMoves(), numPushes, nodesExpanded, getElapsedMillis(), getNodesPerSecond());
+    }
+
+    public enum Status {
+        SOLVED, UNSOLVABLE, NODE_BUDGET_EXCEEDED, TIME_BUDGET_EXCEEDED, CANCELLED
+    }
+}
@@ -1,19 +1,23 @@
 package viewmodel;
 
-import javafx.scene.media.Media;
-import javafx.scene.media.MediaPlayer;
-
-import java.util.Collections;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import javafx.scene.media.AudioClip;
 
 /**
  * Handles audio related events.
+ * <p>
+ * Every sound is decoded once, when the manager is created, into a few {@link AudioClip} voices, which play with
+ * low latency and without creating players or threads. Each voice plays one instance of its sound at a time; the
+ * voices of a sound are used round robin, and when all of them are busy, e.g. while a move key is held down, the
+ * oldest one is stopped and reused. So at most {@link #MOVE_VOICES} move sounds overlap, however fast the player
+ * moves, and playing a sound allocates nothing.
  */
 public class AudioManager {
+    private static final int MOVE_VOICES = 4;
     private static AudioManager instance = new AudioManager();
-    //keep a reference to the sound until it finishes playing, to prevent GC from prematurely recollecting it
-    private final Set<MediaPlayer> soundPool = Collections.newSetFromMap(new ConcurrentHashMap<MediaPlayer, Boolean>());
+
+    private final Sound move = new Sound("move", MOVE_VOICES);
+    private final Sound win = new Sound("win", 1);
+    private final Sound deadlock = new Sound("deadlock", 1);
     private boolean enabled = true;
 
     private AudioManager() {
@@ -31,41 +35,57 @@ public class AudioManager {
         this.enabled = enabled;
     }
 
-    /**
-     * Plays the sound. If disabled, simply return.
-     * <p>
-     * Hint:
-     * {@link MediaPlayer#play()} and {@link MediaPlayer#dispose()} are used.
-     * When creating a new MediaPlayer object, add it into the soundpool before playing it.
-     * Also set a callback for when the sound has completed: remove it from the soundpool, and dispose of the
-     * sound in a newly created thread using the dispose method.
-     * <p>
-     * Make sure to set any threads you create as daemon threads so that the application will exit cleanly.
-     *
-     * @param name the name of the sound file to be played, excluding .mp3
-     */
-    private void playFile(String name) {
-        if (!enabled) return;
-        var media = new MediaPlayer(new Media(this.getClass().getResource("/assets/audio/" + name + ".mp3").toExternalForm()));
-        this.soundPool.add(media);
-        media.play();
-        media.setOnEndOfMedia(() -> {
-            this.soundPool.remove(name);
-            var thread = new Thread(media::dispose);
-            thread.setDaemon(true);
-            thread.start();
-        });
-    }
-
     public void playMoveSound() {
-        playFile("move");
+        if (enabled)
+            move.play();
     }
 
     public void playWinSound() {
-        playFile("win");
+        if (enabled)
+            win.play();
     }
 
     public void playDeadlockSound() {
-        playFile("deadlock");
+        if (enabled)
+            deadlock.play();
+    }
+
+    /**
+     * The voices of one sound
+     */
+    private static final class Sound {
+        private final AudioClip[] voices;
+        private int next;
+
+        /**
+         * @param name   the name of the sound file, excluding .mp3
+         * @param voices the number of instances of the sound which can play at once
+         */
+        Sound(String name, int voices) {
+            AudioClip[] clips = new AudioClip[voices];
+            try {
+                String source = AudioManager.class.getResource("/assets/audio/" + name + ".mp3").toExternalForm();
+                for (int i = 0; i < voices; i++)
+                    clips[i] = new AudioClip(source);
+            } catch (RuntimeException | LinkageError e) {
+                //e.g. no media support on this platform; the sound is then silent
+                e.printStackTrace();
+                clips = new AudioClip[0];
+            }
+            this.voices = clips;
+        }
+
+        /**
+         * Plays the sound on the next voice, stopping it first if it is still playing
+         */
+        void play() {
+            if (voices.length == 0)
+                return;
+            AudioClip voice = voices[next];
+            next = (next + 1) % voices.length;
+            if (voice.isPlaying())
+                voice.stop();
+            voice.play();
+        }
     }
 }
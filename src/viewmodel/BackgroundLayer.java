@@ -0,0 +1,130 @@
+package viewmodel;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+import model.Map.Map;
+
+import java.util.LinkedHashMap;
+
+/**
+ * The static layer of a level, i.e. its walls, floor tiles and destination tiles, rasterised into images once and
+ * then blitted, so that repainting the level only costs one draw call per block of cells plus the crates and the
+ * player on top.
+ * <p>
+ * The layer is split into square chunks of about {@link #CHUNK_PIXELS} pixels, which are rasterised when they are
+ * first drawn. At most {@link #MAX_CHUNKS} chunks are kept, least recently drawn first out, so that a large map does
+ * not need one huge image. The layer stays valid as long as the level layout and the tile size stay the same.
+ */
+class BackgroundLayer {
+    private static final int CHUNK_PIXELS = 512;
+    private static final int MAX_CHUNKS = 64;
+
+    private final Map map;
+    private final int tileSize;
+    //width and height of a chunk in cells
+    private final int chunkCells;
+    private final int chunkCols;
+    private final int[] wallPixels;
+    private final int[] tilePixels;
+    private final int[] destPixels;
+    private final LinkedHashMap<Integer, WritableImage> chunks = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param map      The map whose walls and destinations are drawn
+     * @param tileSize The width and height of a cell in pixels
+     * @param wall     The wall image
+     * @param tile     The floor tile image
+     * @param dest     The destination tile image
+     */
+    BackgroundLayer(Map map, int tileSize, Image wall, Image tile, Image dest) {
+        this.map = map;
+        this.tileSize = tileSize;
+        this.chunkCells = Math.max(1, CHUNK_PIXELS / tileSize);
+        this.chunkCols = (map.getCols() + chunkCells - 1) / chunkCells;
+        this.wallPixels = scale(wall, tileSize);
+        this.tilePixels = scale(tile, tileSize);
+        this.destPixels = scale(dest, tileSize);
+    }
+
+    /**
+     * @return Whether this layer can be used to draw the map at the tile size
+     */
+    boolean isValidFor(Map map, int tileSize) {
+        return this.tileSize == tileSize && this.map.hasSameLayout(map);
+    }
+
+    /**
+     * Draws the static layer of the cells in rows r0 to r1 and columns c0 to c1, exclusive
+     *
+     * @param x0 The x coordinate on the canvas of the left edge of column 0
+     * @param y0 The y coordinate on the canvas of the top edge of row 0
+     */
+    void draw(GraphicsContext graphicsContext, int r0, int c0, int r1, int c1, double x0, double y0) {
+        for (int cr = r0 / chunkCells; cr * chunkCells < r1; cr++) {
+            for (int cc = c0 / chunkCells; cc * chunkCells < c1; cc++) {
+                int top = Math.max(r0, cr * chunkCells);
+                int left = Math.max(c0, cc * chunkCells);
+                int bottom = Math.min(r1, (cr + 1) * chunkCells);
+                int right = Math.min(c1, (cc + 1) * chunkCells);
+                graphicsContext.drawImage(chunk(cr, cc),
+                        (left - cc * chunkCells) * tileSize, (top - cr * chunkCells) * tileSize,
+                        (right - left) * tileSize, (bottom - top) * tileSize,
+                        x0 + left * tileSize, y0 + top * tileSize, (right - left) * tileSize, (bottom - top) * tileSize);
+            }
+        }
+    }
+
+    /**
+     * Draws the static layer of a single cell, e.g. one the player just left
+     */
+    void drawCell(GraphicsContext graphicsContext, int r, int c, double x0, double y0) {
+        draw(graphicsContext, r, c, r + 1, c + 1, x0, y0);
+    }
+
+    private WritableImage chunk(int cr, int cc) {
+        Integer key = cr * chunkCols + cc;
+        WritableImage image = chunks.get(key);
+        if (image != null)
+            return image;
+
+        int rows = Math.min(chunkCells, map.getRows() - cr * chunkCells);
+        int cols = Math.min(chunkCells, map.getCols() - cc * chunkCells);
+        image = new WritableImage(cols * tileSize, rows * tileSize);
+        var writer = image.getPixelWriter();
+        var format = PixelFormat.getIntArgbInstance();
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int r = cr * chunkCells + i;
+                int c = cc * chunkCells + j;
+                int[] pixels = map.isWall(r, c) ? wallPixels : map.isDestTile(r, c) ? destPixels : tilePixels;
+                writer.setPixels(j * tileSize, i * tileSize, tileSize, tileSize, format, pixels, 0, tileSize);
+            }
+        }
+        chunks.put(key, image);
+        if (chunks.size() > MAX_CHUNKS) {
+            var it = chunks.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+        return image;
+    }
+
+    /**
+     * @return The ARGB pixels of the image scaled to size x size with nearest neighbour sampling
+     */
+    private static int[] scale(Image image, int size) {
+        PixelReader reader = image.getPixelReader();
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = new int[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                pixels[y * size + x] = reader.getArgb(x * width / size, y * height / size);
+            }
+        }
+        return pixels;
+    }
+}
@@ -10,6 +10,11 @@ public class Config {
     public static final int LIST_CELL_HEIGHT = 30;
 
     public static final int LEVEL_EDITOR_TILE_SIZE = 32;
+    //largest canvas used to show a map, bigger maps are scrolled
+    public static final int VIEWPORT_WIDTH = 800;
+    public static final int VIEWPORT_HEIGHT = 448;
+    //largest canvas of the level preview and the level editor
+    public static final int PREVIEW_SIZE = 480;
     public static final String CSS_STYLES = Config.class.getResource("/assets/css/styles.css").toString();
 
     public static String getAboutText() {
@@ -17,7 +22,9 @@ public class Config {
                 "w: up\n" +
                 "a: left\n" +
                 "s: down\n" +
-                "d: right\n\n" +
+                "d: right\n" +
+                "z: undo\n" +
+                "y: redo\n\n" +
                 "Instructions:\n" +
                 "The objective of Sokoban is to push the all of the crates onto the destination tiles. This is done by moving the player next to a crate and pushing it.";
     }
@@ -0,0 +1,79 @@
+package viewmodel;
+
+/**
+ * Collects the keys typed by the player between two frames, so that the gameplay pane can apply them all at once
+ * on the next pulse instead of moving and repainting for every key event.
+ * <p>
+ * Key repeats are coalesced: while a key is held down, at most one entry for it waits in the queue, so holding a key
+ * moves the player at most once per frame however fast the keyboard repeats. Separate presses are all kept, up to
+ * {@link #CAPACITY}. Every entry remembers when its key was pressed, to measure the latency until it is drawn.
+ * <p>
+ * Only used on the JavaFX application thread.
+ */
+public class InputQueue {
+    public static final int CAPACITY = 64;
+
+    private final char[] keys = new char[CAPACITY];
+    private final long[] pressNanos = new long[CAPACITY];
+    private final boolean[] held = new boolean[128];
+    private int head;
+    private int size;
+
+    /**
+     * @param key   The key, one of the keys of {@link model.GameLevel#makeMove(char)}, or z/y for undo/redo
+     * @param nanos The {@link System#nanoTime()} of the key event
+     * @return Whether the key was queued, i.e. it was not a coalesced repeat and the queue was not full
+     */
+    public boolean press(char key, long nanos) {
+        boolean repeat = held[key];
+        held[key] = true;
+        if ((repeat && contains(key)) || size == CAPACITY)
+            return false;
+        int tail = (head + size) % CAPACITY;
+        keys[tail] = key;
+        pressNanos[tail] = nanos;
+        size++;
+        return true;
+    }
+
+    public void release(char key) {
+        held[key] = false;
+    }
+
+    private boolean contains(char key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[(head + i) % CAPACITY] == key)
+                return true;
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The press time of the oldest key in the queue. Only meaningful when not {@link #isEmpty()}
+     */
+    public long peekPressNanos() {
+        return pressNanos[head];
+    }
+
+    /**
+     * @return The oldest key in the queue, which is removed. Only meaningful when not {@link #isEmpty()}
+     */
+    public char poll() {
+        char key = keys[head];
+        head = (head + 1) % CAPACITY;
+        size--;
+        return key;
+    }
+
+    /**
+     * Drops the queued keys, e.g. when the level is being replaced. Keys still held down stay so.
+     */
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}
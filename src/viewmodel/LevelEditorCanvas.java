@@ -17,6 +17,8 @@ public class LevelEditorCanvas extends Canvas {
     private int cols;
 
     private Brush[][] map;
+    //shows a window of at most PREVIEW_SIZE pixels onto the grid, scrolled with the mouse wheel
+    private final Viewport viewport = new Viewport(this, Config.PREVIEW_SIZE, Config.PREVIEW_SIZE);
 
     //Stores the last location the player was standing at
     private int oldPlayerRow = -1;
@@ -25,6 +27,8 @@ public class LevelEditorCanvas extends Canvas {
     /**
      * Call the super constructor. Also resets the map to all {@link Brush#TILE}.
      * Hint: each square cell in the grid has size {@link Config#LEVEL_EDITOR_TILE_SIZE}
+     * <p>
+     * Grids larger than the canvas are scrolled with the mouse wheel (hold shift to scroll horizontally).
      *
      * @param rows The number of rows in the map
      * @param cols The number of tiles in the map
@@ -32,6 +36,10 @@ public class LevelEditorCanvas extends Canvas {
     public LevelEditorCanvas(int rows, int cols) {
         super(Config.LEVEL_EDITOR_TILE_SIZE * cols, Config.LEVEL_EDITOR_TILE_SIZE * rows);
         this.changeSize(rows, cols);
+        this.setOnScroll(scrollEvent -> {
+            this.viewport.scrollBy(-scrollEvent.getDeltaX(), -scrollEvent.getDeltaY());
+            this.renderCanvas();
+        });
     }
 
     /**
@@ -66,10 +74,10 @@ public class LevelEditorCanvas extends Canvas {
     }
 
     /**
-     * Render the map using {@link MapRenderer}
+     * Render the visible part of the map using {@link MapRenderer}
      */
     private void renderCanvas() {
-        MapRenderer.render(this, this.map);
+        MapRenderer.render(this.viewport, this.map);
     }
 
     /**
@@ -92,8 +100,10 @@ public class LevelEditorCanvas extends Canvas {
      * @param y     Mouse click coordinate y
      */
     public void setTile(Brush brush, double x, double y) {
-        int newx = (int) (x / Config.LEVEL_EDITOR_TILE_SIZE);
-        int newy = (int) (y / Config.LEVEL_EDITOR_TILE_SIZE);
+        int newx = this.viewport.colAt(x);
+        int newy = this.viewport.rowAt(y);
+        if (newy < 0 || newy >= this.rows || newx < 0 || newx >= this.cols)
+            return;
         if (brush.toString().contains("Player")) {
             if (this.oldPlayerRow != -1 && this.oldPlayerCol != -1) {
                 var oldPlayer = this.map[this.oldPlayerRow][this.oldPlayerCol];
@@ -207,6 +217,15 @@ public class LevelEditorCanvas extends Canvas {
         WALL("Wall", '#'),
         DEST("Destination", 'C');
 
+        //indexed by rep, so that fromChar neither scans nor clones values()
+        private static final Brush[] BY_REP = new Brush[128];
+
+        static {
+            for (Brush b : Brush.values()) {
+                BY_REP[b.rep] = b;
+            }
+        }
+
         private final String text;
         private final char rep;
 
@@ -216,12 +235,7 @@ public class LevelEditorCanvas extends Canvas {
         }
 
         public static Brush fromChar(char c) {
-            for (Brush b : Brush.values()) {
-                if (b.getRep() == c) {
-                    return b;
-                }
-            }
-            return null;
+            return c < BY_REP.length ? BY_REP[c] : null;
         }
 
         @Override
@@ -0,0 +1,108 @@
+package viewmodel;
+
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyIntegerWrapper;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import model.GameLevel;
+import model.LevelManager;
+
+/**
+ * JavaFX properties mirroring the state of {@link LevelManager} and its {@link GameLevel}, for the UI to bind to.
+ * The model itself does not depend on JavaFX: this adapter listens to it, and makes it hand over the results of
+ * background work on the JavaFX application thread, so the properties are only ever changed there.
+ */
+public class LevelProperties {
+    private static final LevelProperties ourInstance = new LevelProperties();
+
+    private final ObservableList<String> levelNames = FXCollections.observableArrayList();
+    private final ReadOnlyStringWrapper currentLevelName = new ReadOnlyStringWrapper();
+    private final ReadOnlyIntegerWrapper existedDuration = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyIntegerWrapper numRestarts = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper();
+    private final ReadOnlyIntegerWrapper numPushes = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyIntegerWrapper numCratesOnDest = new ReadOnlyIntegerWrapper();
+    private final ReadOnlyIntegerWrapper numDestTiles = new ReadOnlyIntegerWrapper();
+
+    private LevelProperties() {
+        LevelManager levelManager = LevelManager.getInstance();
+        levelManager.setCallbackExecutor(Platform::runLater);
+        levelManager.addListener(new LevelManager.Listener() {
+            @Override
+            public void levelNamesChanged() {
+                levelNames.setAll(levelManager.getLevelNames());
+            }
+
+            @Override
+            public void stateChanged() {
+                updateState();
+            }
+        });
+        levelManager.getGameLevel().addListener(this::updateCounters);
+        levelNames.setAll(levelManager.getLevelNames());
+        updateState();
+        updateCounters(levelManager.getGameLevel());
+    }
+
+    public static LevelProperties getInstance() {
+        return ourInstance;
+    }
+
+    private void updateState() {
+        LevelManager levelManager = LevelManager.getInstance();
+        currentLevelName.set(levelManager.getCurrentLevelName());
+        existedDuration.set(levelManager.getCurGameLevelExistedDuration());
+        numRestarts.set(levelManager.getCurGameLevelNumRestarts());
+        loading.set(levelManager.isLoading());
+    }
+
+    /**
+     * Setting a property to its current value does not notify its listeners, so e.g. the crate counter is only
+     * redrawn when a push moves a crate on or off a destination
+     */
+    private void updateCounters(GameLevel gameLevel) {
+        numPushes.set(gameLevel.getNumPushes());
+        numCratesOnDest.set(gameLevel.getNumCratesOnDest());
+        numDestTiles.set(gameLevel.getNumDestTiles());
+    }
+
+    public ObservableList<String> getLevelNames() {
+        return levelNames;
+    }
+
+    public ReadOnlyStringProperty currentLevelNameProperty() {
+        return currentLevelName.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty curGameLevelExistedDurationProperty() {
+        return existedDuration.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty curGameLevelNumRestartsProperty() {
+        return numRestarts.getReadOnlyProperty();
+    }
+
+    /**
+     * @return Whether a level is being loaded by {@link LevelManager#setLevelAsync(String)}
+     */
+    public ReadOnlyBooleanProperty loadingProperty() {
+        return loading.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty numPushesProperty() {
+        return numPushes.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty numCratesOnDestProperty() {
+        return numCratesOnDest.getReadOnlyProperty();
+    }
+
+    public ReadOnlyIntegerProperty numDestTilesProperty() {
+        return numDestTiles.getReadOnlyProperty();
+    }
+}
@@ -1,11 +1,9 @@
 package viewmodel;
 
-import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.image.Image;
 import model.Map.Cell;
-import model.Map.Occupant.Crate;
-import model.Map.Occupiable.DestTile;
-import model.Map.Occupiable.Occupiable;
+import model.Map.Map;
 
 import java.net.URISyntaxException;
 
@@ -38,21 +36,19 @@ public class MapRenderer {
     }
 
     /**
-     * Render the map onto the canvas. This method can be used in Level Editor
-     * <p>
-     * Hint: set the canvas height and width as a multiple of the rows and cols
+     * Render the visible part of the map onto the viewport's canvas. This method can be used in Level Editor
      *
-     * @param canvas The canvas to be rendered onto
-     * @param map    The map holding the current state of the game
+     * @param viewport The viewport to be rendered onto
+     * @param map      The map being edited
      */
-    static void render(Canvas canvas, LevelEditorCanvas.Brush[][] map) {
+    static void render(Viewport viewport, LevelEditorCanvas.Brush[][] map) {
         int rowNum = map.length;
         int colNum = map.length > 0 ? map[0].length : 0;
-        canvas.setHeight((double) (rowNum << 5));
-        canvas.setWidth((double) (colNum << 5));
-        var graphicsContext = canvas.getGraphicsContext2D();
-        for (var i = 0; i < rowNum; i++) {
-            for (var j = 0; j < colNum; j++) {
+        viewport.setWorldSize(rowNum, colNum);
+        int size = viewport.getTileSize();
+        var graphicsContext = viewport.getCanvas().getGraphicsContext2D();
+        for (var i = viewport.firstVisibleRow(); i < viewport.endVisibleRow(); i++) {
+            for (var j = viewport.firstVisibleCol(); j < viewport.endVisibleCol(); j++) {
                 Image image = null;
                 switch (map[i][j].getRep()) {
                     case '.': {
@@ -84,48 +80,123 @@ public class MapRenderer {
                         break;
                     }
                 }
-                graphicsContext.drawImage(image, (double)(j << 5), (double)(i << 5));
+                graphicsContext.drawImage(image, viewport.originX() + j * size, viewport.originY() + i * size, size, size);
             }
         }
     }
 
-
     /**
-     * Render the map onto the canvas. This method can be used in GamePlayPane and LevelSelectPane
-     * <p>
-     * Hint: set the canvas height and width as a multiple of the rows and cols
+     * Render the visible part of the map onto the viewport's canvas, straight from the packed board without
+     * building the {@link Cell} view. Walls and floors come from the viewport's cached {@link BackgroundLayer}, which
+     * is only rasterised again when the level or the tile size changes; crates and the player are drawn on top.
+     * Afterwards the map's dirty cells are cleared, so that {@link #renderDirty(Viewport, Map)} continues from here.
      *
-     * @param canvas The canvas to be rendered onto
-     * @param map    The map holding the current state of the game
+     * @param viewport The viewport to be rendered onto
+     * @param map      The map holding the current state of the game
      */
-    public static void render(Canvas canvas, Cell[][] map) {
-        int rowNum = map.length;
-        int colNum = map.length > 0 ? map[0].length : 0;
-        canvas.setHeight((double) (rowNum * Config.LEVEL_EDITOR_TILE_SIZE));
-        canvas.setWidth((double) (colNum * Config.LEVEL_EDITOR_TILE_SIZE));
-        var graphicsContext = canvas.getGraphicsContext2D();
-        for (var i = 0; i < rowNum; i++) {
-            for (var j = 0; j < colNum; j++) {
-                Image image = null;
-                if (!(map[i][j] instanceof Occupiable)) {
-                    image = wall;
-                } else {
-                    if (!((Occupiable) map[i][j]).getOccupant().isPresent()) {
-                        if (map[i][j] instanceof DestTile) {
-                            image = dest;
-                        } else {
-                            image = tile;
-                        }
-                    } else {
-                        if (((Occupiable) map[i][j]).getOccupant().get() instanceof Crate) {
-                            image = map[i][j] instanceof DestTile ? crateOnDest : crateOnTile;
-                        } else {
-                            image = map[i][j] instanceof DestTile ? playerOnDest : playerOnTile;
-                        }
-                    }
+    public static void render(Viewport viewport, Map map) {
+        viewport.setWorldSize(map.getRows(), map.getCols());
+        int size = viewport.getTileSize();
+        var graphicsContext = viewport.getCanvas().getGraphicsContext2D();
+        double x0 = viewport.originX();
+        double y0 = viewport.originY();
+        int r0 = viewport.firstVisibleRow();
+        int c0 = viewport.firstVisibleCol();
+        int r1 = viewport.endVisibleRow();
+        int c1 = viewport.endVisibleCol();
+        backgroundLayer(viewport, map).draw(graphicsContext, r0, c0, r1, c1, x0, y0);
+        if ((long) (r1 - r0) * (c1 - c0) > map.getNumCrates()) {
+            for (int i = map.nextCrate(0); i >= 0; i = map.nextCrate(i + 1)) {
+                int r = map.rowOf(i);
+                int c = map.colOf(i);
+                if (r >= r0 && r < r1 && c >= c0 && c < c1)
+                    drawOccupant(graphicsContext, map, r, c, size, x0, y0);
+            }
+        } else {
+            for (int r = r0; r < r1; r++) {
+                for (int c = c0; c < c1; c++) {
+                    if (map.hasCrate(r, c))
+                        drawOccupant(graphicsContext, map, r, c, size, x0, y0);
                 }
-                graphicsContext.drawImage(image, (double) (j << 5), (double) (i << 5), Config.LEVEL_EDITOR_TILE_SIZE, Config.LEVEL_EDITOR_TILE_SIZE);
             }
         }
+        drawOccupant(graphicsContext, map, map.getPlayerR(), map.getPlayerC(), size, x0, y0);
+        viewport.lastRendered = map;
+        viewport.renderedX = x0;
+        viewport.renderedY = y0;
+        map.clearDirtyCells();
+    }
+
+    /**
+     * Redraw only the cells of the map which changed since it was last rendered, i.e. the two or three cells a move
+     * touches. Falls back to {@link #render(Viewport, Map)} when the viewport was last used for another map, when
+     * the camera has moved, or when the map reports that every cell is dirty (e.g. after loading a level).
+     * Only one viewport can follow a map this way, as rendering clears the map's dirty cells.
+     *
+     * @param viewport The viewport to be rendered onto
+     * @param map      The map holding the current state of the game
+     */
+    public static void renderDirty(Viewport viewport, Map map) {
+        viewport.setWorldSize(map.getRows(), map.getCols());
+        double x0 = viewport.originX();
+        double y0 = viewport.originY();
+        if (map.isAllDirty() || viewport.lastRendered != map || viewport.renderedX != x0 || viewport.renderedY != y0) {
+            render(viewport, map);
+            return;
+        }
+        int size = viewport.getTileSize();
+        var graphicsContext = viewport.getCanvas().getGraphicsContext2D();
+        BackgroundLayer background = backgroundLayer(viewport, map);
+        for (var k = 0; k < map.getNumDirtyCells(); k++) {
+            int index = map.getDirtyCell(k);
+            int r = map.rowOf(index);
+            int c = map.colOf(index);
+            if (r < viewport.firstVisibleRow() || r >= viewport.endVisibleRow()
+                    || c < viewport.firstVisibleCol() || c >= viewport.endVisibleCol())
+                continue;
+            background.drawCell(graphicsContext, r, c, x0, y0);
+            drawOccupant(graphicsContext, map, r, c, size, x0, y0);
+        }
+        map.clearDirtyCells();
+    }
+
+    /**
+     * @return The background layer cached in the viewport, or a new one if the level or tile size changed
+     */
+    private static BackgroundLayer backgroundLayer(Viewport viewport, Map map) {
+        if (viewport.background == null || !viewport.background.isValidFor(map, viewport.getTileSize())) {
+            viewport.background = new BackgroundLayer(map, viewport.getTileSize(), wall, tile, dest);
+        }
+        return viewport.background;
+    }
+
+    /**
+     * @return The image of the cell, with the crate or the player on it if there is one
+     */
+    static Image cellImage(Map map, int r, int c) {
+        boolean onDest = map.isDestTile(r, c);
+        if (map.isWall(r, c))
+            return wall;
+        if (map.hasCrate(r, c))
+            return onDest ? crateOnDest : crateOnTile;
+        if (r == map.getPlayerR() && c == map.getPlayerC())
+            return onDest ? playerOnDest : playerOnTile;
+        return onDest ? dest : tile;
+    }
+
+    /**
+     * Draws the crate or the player on the cell, if there is one
+     */
+    private static void drawOccupant(GraphicsContext graphicsContext, Map map, int r, int c, int size, double x0, double y0) {
+        Image image;
+        boolean onDest = map.isDestTile(r, c);
+        if (map.hasCrate(r, c)) {
+            image = onDest ? crateOnDest : crateOnTile;
+        } else if (r == map.getPlayerR() && c == map.getPlayerC()) {
+            image = onDest ? playerOnDest : playerOnTile;
+        } else {
+            return;
+        }
+        graphicsContext.drawImage(image, x0 + c * size, y0 + r * size, size, size);
     }
 }
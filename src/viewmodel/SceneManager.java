@@ -36,8 +36,17 @@ public class SceneManager {
         return stage;
     }
 
+    /**
+     * Also pauses the level clock while the stage is minimized
+     */
     public void setStage(Stage stage) {
         this.stage = stage;
+        stage.iconifiedProperty().addListener((observable, wasIconified, iconified) -> {
+            if (iconified)
+                LevelManager.getInstance().pauseLevelTimer();
+            else
+                LevelManager.getInstance().resumeLevelTimer();
+        });
     }
 
     private void showScene(Scene scene) {
@@ -0,0 +1,378 @@
+package viewmodel;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import model.LevelCache;
+import model.LevelManager;
+import model.LevelPack;
+import model.Exceptions.InvalidMapException;
+import model.Map.Map;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Renders downscaled previews of levels on background threads, so that browsing the level list never parses or
+ * draws a map on the JavaFX application thread.
+ * <p>
+ * Thumbnails are kept in an LRU memory cache, limited by the bytes of their pixels, and in a disk cache under
+ * ~/.sokoban/thumbnails, as raw ARGB pixels keyed by a hash of the level file's contents, so they survive restarts
+ * and are regenerated when a file changes. The disk cache is limited to {@link #DISK_BUDGET} bytes; beyond that the
+ * least recently used files, including those of levels which have since changed, are deleted.
+ * Every {@link #request(String, int, int, Consumer) request} can be cancelled, e.g. when a list cell is reused for
+ * another level or the selection moves on; a cancelled request that has not started yet is never run, and one
+ * that is running does not deliver its result.
+ */
+public class ThumbnailService {
+    private static final ThumbnailService ourInstance = new ThumbnailService();
+    //pixel bytes of the thumbnails kept in memory
+    private static final long MEMORY_BUDGET = 32L << 20;
+    private static final Path DISK_CACHE = Paths.get(System.getProperty("user.home"), ".sokoban", "thumbnails");
+    private static final long DISK_BUDGET = 64L << 20;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2), runnable -> {
+                Thread thread = new Thread(runnable, "thumbnails");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final LinkedHashMap<String, Image> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    //levels which failed to parse, which have no thumbnail; like the memory cache, kept for the session
+    private final HashSet<String> invalidLevels = new HashSet<>();
+    //content hashes of level files, by path, valid while the modification time is unchanged
+    private final HashMap<Path, FileHash> fileHashes = new HashMap<>();
+    private final IdentityHashMap<Image, int[]> tilePixels = new IdentityHashMap<>();
+    private final Object diskLock = new Object();
+    //bytes in the disk cache, -1 until the directory has been measured
+    private long diskBytes = -1;
+
+    private ThumbnailService() {
+    }
+
+    public static ThumbnailService getInstance() {
+        return ourInstance;
+    }
+
+    /**
+     * A pending thumbnail, which can be cancelled
+     */
+    public static final class Request {
+        private volatile boolean cancelled;
+        private Future<?> future;
+
+        /**
+         * Drops the request. Its callback is not called afterwards.
+         */
+        public void cancel() {
+            cancelled = true;
+            if (future != null)
+                future.cancel(false);
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    /**
+     * Requests a thumbnail of a level in the level list. Must be called on the JavaFX application thread, which is
+     * also where the callback runs.
+     *
+     * @param levelName The name of the level, see {@link LevelManager#getLevelNames()}
+     * @param maxWidth  The maximum width of the thumbnail in pixels
+     * @param maxHeight The maximum height of the thumbnail in pixels
+     * @param onReady   Receives the thumbnail, which keeps the aspect ratio of the map, or null if the level is
+     *                  invalid
+     * @return The request, to be cancelled when the thumbnail is no longer needed
+     */
+    public Request request(String levelName, int maxWidth, int maxHeight, Consumer<Image> onReady) {
+        Request request = new Request();
+        LevelPack.Entry packLevel = LevelManager.getInstance().getPackLevel(levelName);
+        Path path = LevelManager.getInstance().getLevelPath(levelName).toAbsolutePath().normalize();
+        String level = path + (packLevel != null ? "#" + packLevel.getNumber() : "");
+        String memoryKey = level + "@" + maxWidth + "x" + maxHeight;
+        Image cached;
+        boolean invalid;
+        synchronized (memory) {
+            cached = memory.get(memoryKey);
+            invalid = invalidLevels.contains(level);
+        }
+        if (cached != null || invalid) {
+            onReady.accept(cached);
+            return request;
+        }
+
+        request.future = executor.submit(() -> {
+            if (request.cancelled)
+                return;
+            Image image = null;
+            try {
+                image = load(path, packLevel, maxWidth, maxHeight, request);
+            } catch (InvalidMapException e) {
+                synchronized (memory) {
+                    invalidLevels.add(level);
+                }
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            if (image != null) {
+                synchronized (memory) {
+                    Image replaced = memory.put(memoryKey, image);
+                    if (replaced != null)
+                        memoryBytes -= bytesOf(replaced);
+                    memoryBytes += bytesOf(image);
+                    //evict the least recently used thumbnails, but never the one just added
+                    var it = memory.values().iterator();
+                    while (memoryBytes > MEMORY_BUDGET && memory.size() > 1) {
+                        memoryBytes -= bytesOf(it.next());
+                        it.remove();
+                    }
+                }
+            }
+            Image result = image;
+            if (!request.cancelled)
+                Platform.runLater(() -> {
+                    if (!request.cancelled)
+                        onReady.accept(result);
+                });
+        });
+        return request;
+    }
+
+    private static long bytesOf(Image image) {
+        return 4L * (long) image.getWidth() * (long) image.getHeight();
+    }
+
+    private Image load(Path path, LevelPack.Entry packLevel, int maxWidth, int maxHeight, Request request)
+            throws Exception {
+        String diskKey = fileHash(path) + (packLevel != null ? "-" + packLevel.getNumber() : "")
+                + "-" + maxWidth + "x" + maxHeight;
+        Path diskFile = DISK_CACHE.resolve(diskKey + ".argb");
+        if (Files.isRegularFile(diskFile)) {
+            Image image = readImage(Files.readAllBytes(diskFile));
+            if (image != null) {
+                //the modification time tells the trimming which thumbnails were used recently
+                try {
+                    Files.setLastModifiedTime(diskFile, FileTime.fromMillis(System.currentTimeMillis()));
+                } catch (IOException ignored) {
+                }
+                return image;
+            }
+        }
+        if (request.cancelled)
+            return null;
+
+        Map map = new Map();
+        map.initialize(packLevel != null ? LevelCache.getInstance().get(packLevel)
+                : LevelCache.getInstance().get(path.toString()));
+        if (request.cancelled)
+            return null;
+        double scale = Math.min(Config.LEVEL_EDITOR_TILE_SIZE,
+                Math.min((double) maxWidth / map.getCols(), (double) maxHeight / map.getRows()));
+        int width = Math.max(1, (int) (map.getCols() * scale));
+        int height = Math.max(1, (int) (map.getRows() * scale));
+        int[] pixels = render(map, width, height);
+        trimDiskCache(writeImage(diskFile, width, height, pixels));
+        return toImage(width, height, pixels);
+    }
+
+    /**
+     * Samples every pixel of the thumbnail from the tile image of the cell under it, so that the result looks like
+     * the map drawn with smaller tiles
+     */
+    private int[] render(Map map, int width, int height) {
+        int size = Config.LEVEL_EDITOR_TILE_SIZE;
+        int[] pixels = new int[width * height];
+        Image lastImage = null;
+        int[] lastPixels = null;
+        for (int y = 0; y < height; y++) {
+            long my = (long) y * map.getRows() * size / height;
+            int r = (int) (my / size);
+            int ty = (int) (my % size);
+            for (int x = 0; x < width; x++) {
+                long mx = (long) x * map.getCols() * size / width;
+                int c = (int) (mx / size);
+                int tx = (int) (mx % size);
+                Image image = MapRenderer.cellImage(map, r, c);
+                if (image != lastImage) {
+                    lastImage = image;
+                    lastPixels = pixelsOf(image);
+                }
+                pixels[y * width + x] = lastPixels[ty * size + tx];
+            }
+        }
+        return pixels;
+    }
+
+    private int[] pixelsOf(Image image) {
+        synchronized (tilePixels) {
+            int[] pixels = tilePixels.get(image);
+            if (pixels == null) {
+                int size = Config.LEVEL_EDITOR_TILE_SIZE;
+                var reader = image.getPixelReader();
+                int width = (int) image.getWidth();
+                int height = (int) image.getHeight();
+                pixels = new int[size * size];
+                for (int y = 0; y < size; y++) {
+                    for (int x = 0; x < size; x++) {
+                        pixels[y * size + x] = reader.getArgb(x * width / size, y * height / size);
+                    }
+                }
+                tilePixels.put(image, pixels);
+            }
+            return pixels;
+        }
+    }
+
+    /**
+     * @return The SHA-1 of the file's contents, hex encoded, reusing the last hash while the file is unchanged
+     */
+    private String fileHash(Path path) throws IOException, NoSuchAlgorithmException {
+        long modified = Files.getLastModifiedTime(path).toMillis();
+        synchronized (fileHashes) {
+            FileHash known = fileHashes.get(path);
+            if (known != null && known.modified == modified)
+                return known.hash;
+        }
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] buf = new byte[1 << 16];
+            int n;
+            while ((n = in.read(buf)) > 0)
+                digest.update(buf, 0, n);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest())
+            hex.append(String.format("%02x", b));
+        synchronized (fileHashes) {
+            fileHashes.put(path, new FileHash(modified, hex.toString()));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * @return The number of bytes written, 0 if the thumbnail could not be written
+     */
+    private static long writeImage(Path file, int width, int height, int[] pixels) {
+        try {
+            Files.createDirectories(file.getParent());
+            ByteBuffer buf = ByteBuffer.allocate(8 + pixels.length * 4);
+            buf.putInt(width).putInt(height);
+            buf.asIntBuffer().put(pixels);
+            //write to a temporary file first, so that a concurrent reader never sees half a thumbnail
+            Path tmp = Files.createTempFile(file.getParent(), "thumb", ".tmp");
+            Files.write(tmp, buf.array());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return buf.capacity();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Adds a newly written thumbnail to the size of the disk cache. When the cache exceeds {@link #DISK_BUDGET}, the
+     * least recently used thumbnails are deleted until it is down to three quarters of the budget, so that trimming
+     * does not run again on every write.
+     *
+     * @param written The size of the new thumbnail
+     */
+    private void trimDiskCache(long written) {
+        synchronized (diskLock) {
+            if (diskBytes >= 0) {
+                diskBytes += written;
+                if (diskBytes <= DISK_BUDGET)
+                    return;
+            }
+            ArrayList<CachedFile> files = new ArrayList<>();
+            long total = 0;
+            try (var list = Files.list(DISK_CACHE)) {
+                for (Path file : (Iterable<Path>) list::iterator) {
+                    if (!file.getFileName().toString().endsWith(".argb"))
+                        continue;
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    files.add(new CachedFile(file, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                    total += attributes.size();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            if (total > DISK_BUDGET) {
+                files.sort(Comparator.comparingLong(file -> file.used));
+                for (int i = 0; i < files.size() && total > DISK_BUDGET / 4 * 3; i++) {
+                    try {
+                        Files.deleteIfExists(files.get(i).path);
+                        total -= files.get(i).size;
+                    } catch (IOException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            diskBytes = total;
+        }
+    }
+
+    private static Image readImage(byte[] data) {
+        if (data.length < 8)
+            return null;
+        ByteBuffer buf = ByteBuffer.wrap(data);
+        int width = buf.getInt();
+        int height = buf.getInt();
+        if (width <= 0 || height <= 0 || data.length != 8 + 4L * width * height)
+            return null;
+        int[] pixels = new int[width * height];
+        buf.asIntBuffer().get(pixels);
+        return toImage(width, height, pixels);
+    }
+
+    private static Image toImage(int width, int height, int[] pixels) {
+        WritableImage image = new WritableImage(width, height);
+        image.getPixelWriter().setPixels(0, 0, width, height, PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        return image;
+    }
+
+    private static final class CachedFile {
+        final Path path;
+        final long size;
+        final long used;
+
+        CachedFile(Path path, long size, long used) {
+            this.path = path;
+            this.size = size;
+            this.used = used;
+        }
+    }
+
+    private static final class FileHash {
+        final long modified;
+        final String hash;
+
+        FileHash(long modified, String hash) {
+            this.modified = modified;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package viewmodel;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.Canvas;
+
+/**
+ * A camera looking at a grid of cells through a canvas of bounded size. The canvas is never larger than
+ * maxWidth x maxHeight, whatever the size of the map, and only the visible cells are drawn onto it, so rendering
+ * cost and memory do not grow with the map.
+ * <p>
+ * The camera position is the map pixel shown at the top left corner of the canvas. {@link #follow(int, int, boolean)}
+ * keeps a cell, e.g. the player, away from the edges of the view and pans there smoothly, calling the
+ * {@link #setOnPan(Runnable) pan callback} on every frame so the owner can redraw.
+ */
+public class Viewport {
+    //fraction of the view kept between the followed cell and the edges
+    private static final double FOLLOW_MARGIN = 0.25;
+    //speed of the exponential ease towards the target, per second
+    private static final double PAN_SPEED = 12.0;
+
+    private final Canvas canvas;
+    private final double maxWidth;
+    private final double maxHeight;
+    private final int tileSize = Config.LEVEL_EDITOR_TILE_SIZE;
+    private int rows;
+    private int cols;
+    private double cameraX;
+    private double cameraY;
+    private double targetX;
+    private double targetY;
+    private Runnable onPan;
+    private AnimationTimer panTimer;
+    private long lastFrame;
+
+    //render state kept by MapRenderer between frames
+    BackgroundLayer background;
+    Object lastRendered;
+    double renderedX = Double.NaN;
+    double renderedY = Double.NaN;
+
+    /**
+     * @param canvas    The canvas to draw onto, which is resized to fit the map up to the maximum size
+     * @param maxWidth  The maximum width of the canvas in pixels
+     * @param maxHeight The maximum height of the canvas in pixels
+     */
+    public Viewport(Canvas canvas, double maxWidth, double maxHeight) {
+        this.canvas = canvas;
+        this.maxWidth = maxWidth;
+        this.maxHeight = maxHeight;
+    }
+
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Sets the size of the grid being viewed. If it changed, the canvas is resized and the camera moves back to
+     * the top left corner.
+     */
+    public void setWorldSize(int rows, int cols) {
+        if (rows == this.rows && cols == this.cols)
+            return;
+        this.rows = rows;
+        this.cols = cols;
+        resize();
+    }
+
+    private void resize() {
+        canvas.setWidth(Math.min(maxWidth, (double) cols * tileSize));
+        canvas.setHeight(Math.min(maxHeight, (double) rows * tileSize));
+        stopPan();
+        cameraX = targetX = 0;
+        cameraY = targetY = 0;
+    }
+
+    /**
+     * Moves the camera so that the cell is at least a quarter of the view away from every edge, or as close to
+     * that as the map edges allow
+     *
+     * @param smooth Whether to pan there over the next frames instead of jumping
+     */
+    public void follow(int r, int c, boolean smooth) {
+        targetX = followAxis(targetX, c, canvas.getWidth(), cols);
+        targetY = followAxis(targetY, r, canvas.getHeight(), rows);
+        if (smooth) {
+            startPan();
+        } else {
+            stopPan();
+            cameraX = targetX;
+            cameraY = targetY;
+        }
+    }
+
+    private double followAxis(double camera, int cell, double view, int cells) {
+        double margin = view * FOLLOW_MARGIN;
+        double lo = (double) cell * tileSize;
+        double hi = lo + tileSize;
+        if (lo < camera + margin)
+            camera = lo - margin;
+        else if (hi > camera + view - margin)
+            camera = hi - view + margin;
+        return clamp(camera, view, cells);
+    }
+
+    /**
+     * Pans the camera immediately by the given number of pixels, e.g. when the user scrolls
+     */
+    public void scrollBy(double dx, double dy) {
+        stopPan();
+        cameraX = targetX = clamp(cameraX + dx, canvas.getWidth(), cols);
+        cameraY = targetY = clamp(cameraY + dy, canvas.getHeight(), rows);
+    }
+
+    private double clamp(double camera, double view, int cells) {
+        return Math.max(0, Math.min(camera, (double) cells * tileSize - view));
+    }
+
+    /**
+     * @param onPan Called on every frame of a smooth pan, after the camera moved
+     */
+    public void setOnPan(Runnable onPan) {
+        this.onPan = onPan;
+    }
+
+    private void startPan() {
+        if (panTimer == null) {
+            panTimer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    double dt = lastFrame == 0 ? 1.0 / 60 : (now - lastFrame) / 1e9;
+                    lastFrame = now;
+                    double step = 1 - Math.exp(-PAN_SPEED * dt);
+                    cameraX += (targetX - cameraX) * step;
+                    cameraY += (targetY - cameraY) * step;
+                    if (Math.abs(targetX - cameraX) < 0.5 && Math.abs(targetY - cameraY) < 0.5) {
+                        cameraX = targetX;
+                        cameraY = targetY;
+                        stopPan();
+                    }
+                    if (onPan != null)
+                        onPan.run();
+                }
+            };
+        }
+        if (targetX != cameraX || targetY != cameraY) {
+            lastFrame = 0;
+            panTimer.start();
+        }
+    }
+
+    private void stopPan() {
+        if (panTimer != null)
+            panTimer.stop();
+    }
+
+    /**
+     * @return The x coordinate on the canvas of the left edge of column 0, in whole pixels
+     */
+    public double originX() {
+        return -Math.round(cameraX);
+    }
+
+    /**
+     * @return The y coordinate on the canvas of the top edge of row 0, in whole pixels
+     */
+    public double originY() {
+        return -Math.round(cameraY);
+    }
+
+    public int firstVisibleRow() {
+        return Math.max(0, (int) (-originY() / tileSize));
+    }
+
+    public int firstVisibleCol() {
+        return Math.max(0, (int) (-originX() / tileSize));
+    }
+
+    /**
+     * @return The row after the last (partly) visible row
+     */
+    public int endVisibleRow() {
+        return Math.min(rows, (int) Math.ceil((canvas.getHeight() - originY()) / tileSize));
+    }
+
+    /**
+     * @return The column after the last (partly) visible column
+     */
+    public int endVisibleCol() {
+        return Math.min(cols, (int) Math.ceil((canvas.getWidth() - originX()) / tileSize));
+    }
+
+    /**
+     * @param y A y coordinate on the canvas, e.g. of a mouse click
+     * @return The row shown there
+     */
+    public int rowAt(double y) {
+        return (int) Math.floor((y - originY()) / tileSize);
+    }
+
+    /**
+     * @param x An x coordinate on the canvas, e.g. of a mouse click
+     * @return The column shown there
+     */
+    public int colAt(double x) {
+        return (int) Math.floor((x - originX()) / tileSize);
+    }
+}
@@ -2,8 +2,9 @@ package viewmodel.customNodes;
 
 import javafx.beans.Observable;
 import javafx.beans.binding.Bindings;
-import javafx.beans.property.IntegerProperty;
-import javafx.beans.property.StringProperty;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyIntegerProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
 import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
 
@@ -17,19 +18,29 @@ public class GameplayInfoPane extends VBox {
     private final Label timerLabel = new Label();
     private final Label numMovesLabel = new Label();
     private final Label numRestartsLabel = new Label();
+    private final Label numCratesOnDestLabel = new Label();
+    private final Label inputLatencyLabel = new Label();
 
     /**
-     * @param levelNameProperty   the StringProperty which holds the current level name
-     * @param timerProperty       the IntegerProperty which holds the number of seconds the current
-     *                            level has been active since the most recent start/restart
-     * @param numMovesProperty    the IntegerProperty which holds the number of moves the user's
-     *                            Sokoban character has made on the map
-     * @param numRestartsProperty the IntegerProperty which tracks how many times the user
-     *                            has restarted the current level
+     * @param levelNameProperty       the ReadOnlyStringProperty which holds the current level name
+     * @param timerProperty           the ReadOnlyIntegerProperty which holds the number of seconds the current
+     *                                level has been active since the most recent start/restart
+     * @param numMovesProperty        the ReadOnlyIntegerProperty which holds the number of moves the user's
+     *                                Sokoban character has made on the map
+     * @param numRestartsProperty     the ReadOnlyIntegerProperty which tracks how many times the user
+     *                                has restarted the current level
+     * @param numCratesOnDestProperty the ReadOnlyIntegerProperty which holds the number of crates placed on
+     *                                destinations
+     * @param numDestTilesProperty    the ReadOnlyIntegerProperty which holds the number of destinations in the level
+     * @param inputLatencyProperty    the ReadOnlyDoubleProperty which holds the milliseconds from the last input until
+     *                                its move was on screen
      */
-    public GameplayInfoPane(StringProperty levelNameProperty, IntegerProperty timerProperty, IntegerProperty numMovesProperty, IntegerProperty numRestartsProperty) {
-        bindTo(levelNameProperty, timerProperty, numMovesProperty, numRestartsProperty);
-        this.getChildren().addAll(levelNameLabel, timerLabel, numMovesLabel, numRestartsLabel);
+    public GameplayInfoPane(ReadOnlyStringProperty levelNameProperty, ReadOnlyIntegerProperty timerProperty, ReadOnlyIntegerProperty numMovesProperty, ReadOnlyIntegerProperty numRestartsProperty,
+                            ReadOnlyIntegerProperty numCratesOnDestProperty, ReadOnlyIntegerProperty numDestTilesProperty,
+                            ReadOnlyDoubleProperty inputLatencyProperty) {
+        bindTo(levelNameProperty, timerProperty, numMovesProperty, numRestartsProperty, numCratesOnDestProperty, numDestTilesProperty,
+                inputLatencyProperty);
+        this.getChildren().addAll(levelNameLabel, timerLabel, numMovesLabel, numRestartsLabel, numCratesOnDestLabel, inputLatencyLabel);
     }
 
     /**
@@ -57,19 +68,30 @@ public class GameplayInfoPane extends VBox {
      * timerLabel: [Time: 00:01]
      * numMovesLabel: [Moves: 1]
      * numRestartsLabel: [Restarts: 0]
+     * numCratesOnDestLabel: [Crates: 1/3]
+     * inputLatencyLabel: [Latency: 16.7 ms]
      *
-     * @param levelNameProperty   the StringProperty which holds the current level name
-     * @param timerProperty       the IntegerProperty which holds the number of seconds the current
-     *                            level has been active since the most recent start/restart
-     * @param numMovesProperty    the IntegerProperty which holds the number of moves the user's
-     *                            Sokoban character has made on the map
-     * @param numRestartsProperty the IntegerProperty which tracks how many times the user
-     *                            has restarted the current level
+     * @param levelNameProperty       the ReadOnlyStringProperty which holds the current level name
+     * @param timerProperty           the ReadOnlyIntegerProperty which holds the number of seconds the current
+     *                                level has been active since the most recent start/restart
+     * @param numMovesProperty        the ReadOnlyIntegerProperty which holds the number of moves the user's
+     *                                Sokoban character has made on the map
+     * @param numRestartsProperty     the ReadOnlyIntegerProperty which tracks how many times the user
+     *                                has restarted the current level
+     * @param numCratesOnDestProperty the ReadOnlyIntegerProperty which holds the number of crates placed on
+     *                                destinations
+     * @param numDestTilesProperty    the ReadOnlyIntegerProperty which holds the number of destinations in the level
+     * @param inputLatencyProperty    the ReadOnlyDoubleProperty which holds the milliseconds from the last input until
+     *                                its move was on screen
      */
-    private void bindTo(StringProperty levelNameProperty, IntegerProperty timerProperty, IntegerProperty numMovesProperty, IntegerProperty numRestartsProperty) {
+    private void bindTo(ReadOnlyStringProperty levelNameProperty, ReadOnlyIntegerProperty timerProperty, ReadOnlyIntegerProperty numMovesProperty, ReadOnlyIntegerProperty numRestartsProperty,
+                        ReadOnlyIntegerProperty numCratesOnDestProperty, ReadOnlyIntegerProperty numDestTilesProperty,
+                        ReadOnlyDoubleProperty inputLatencyProperty) {
         this.levelNameLabel.textProperty().bind(Bindings.createStringBinding(() -> "[Level: " + levelNameProperty.getValue() + "]", levelNameProperty));
         this.timerLabel.textProperty().bind(Bindings.createStringBinding(() -> "[Time: " + format(timerProperty.get()) + "]", timerProperty));
         this.numMovesLabel.textProperty().bind(Bindings.createStringBinding(() -> "[Moves: " + numMovesProperty.get() + "]", numMovesProperty));
         this.numRestartsLabel.textProperty().bind(Bindings.createStringBinding(() -> "[Restarts: " + numRestartsProperty.get() + "]", numRestartsProperty));
+        this.numCratesOnDestLabel.textProperty().bind(Bindings.createStringBinding(() -> "[Crates: " + numCratesOnDestProperty.get() + "/" + numDestTilesProperty.get() + "]", numCratesOnDestProperty, numDestTilesProperty));
+        this.inputLatencyLabel.textProperty().bind(Bindings.createStringBinding(() -> String.format("[Latency: %.1f ms]", inputLatencyProperty.get()), inputLatencyProperty));
     }
 }
@@ -1,19 +1,30 @@
 package viewmodel.panes;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
 import javafx.event.EventHandler;
 import javafx.geometry.Pos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.input.KeyCode;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
-import model.Exceptions.InvalidMapException;
+import model.GameLevel;
 import model.LevelManager;
+import model.Map.Map;
 import viewmodel.AudioManager;
+import viewmodel.Config;
+import viewmodel.InputQueue;
+import viewmodel.LevelProperties;
 import viewmodel.MapRenderer;
 import viewmodel.SceneManager;
+import viewmodel.Viewport;
 import viewmodel.customNodes.GameplayInfoPane;
 
 /**
@@ -24,6 +35,14 @@ public class GameplayPane extends BorderPane {
     private final GameplayInfoPane info;
     private VBox canvasContainer;
     private Canvas gamePlayCanvas;
+    private ProgressIndicator loadingIndicator;
+    private Viewport viewport;
+    private final InputQueue inputQueue = new InputQueue();
+    private final AnimationTimer inputTimer;
+    private final ReadOnlyDoubleWrapper inputLatency = new ReadOnlyDoubleWrapper();
+    //start of the input being timed, and the pulses left until its change is on screen, 0 if none is being timed
+    private long latencyStartNanos;
+    private int latencyPulses;
     private HBox buttonBar;
     private Button restartButton;
     private Button quitToMenuButton;
@@ -34,13 +53,29 @@ public class GameplayPane extends BorderPane {
      */
     public GameplayPane() {
         this.info = new GameplayInfoPane(
-                LevelManager.getInstance().currentLevelNameProperty(),
-                LevelManager.getInstance().curGameLevelExistedDurationProperty(),
-                LevelManager.getInstance().getGameLevel().numPushesProperty(),
-                LevelManager.getInstance().curGameLevelNumRestartsProperty()
+                LevelProperties.getInstance().currentLevelNameProperty(),
+                LevelProperties.getInstance().curGameLevelExistedDurationProperty(),
+                LevelProperties.getInstance().numPushesProperty(),
+                LevelProperties.getInstance().curGameLevelNumRestartsProperty(),
+                LevelProperties.getInstance().numCratesOnDestProperty(),
+                LevelProperties.getInstance().numDestTilesProperty(),
+                this.inputLatency.getReadOnlyProperty()
         );
         this.canvasContainer = new VBox();
         this.gamePlayCanvas = new Canvas();
+        this.loadingIndicator = new ProgressIndicator();
+        this.viewport = new Viewport(this.gamePlayCanvas, Config.VIEWPORT_WIDTH, Config.VIEWPORT_HEIGHT);
+        this.viewport.setOnPan(() -> MapRenderer.render(this.viewport, LevelManager.getInstance().getGameLevel().getMap()));
+        this.inputTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                if (latencyPulses > 0 && --latencyPulses == 0)
+                    inputLatency.set((System.nanoTime() - latencyStartNanos) / 1e6);
+                applyQueuedInput(true);
+                if (latencyPulses == 0 && inputQueue.isEmpty())
+                    stop();
+            }
+        };
         this.buttonBar = new HBox(20.0);
         this.restartButton = new Button("Restart");
         this.quitToMenuButton = new Button("Quit to menu");
@@ -54,7 +89,7 @@ public class GameplayPane extends BorderPane {
      * Connects the components together (think adding them into another, setting their positions, etc).
      */
     private void connectComponents() {
-        this.canvasContainer.getChildren().add(this.gamePlayCanvas);
+        this.canvasContainer.getChildren().addAll(this.loadingIndicator, this.gamePlayCanvas);
         this.buttonBar.getChildren().addAll(this.info, this.canvasContainer, this.restartButton, this.quitToMenuButton);
         this.setCenter(this.canvasContainer);
         this.setBottom(this.buttonBar);
@@ -66,6 +101,8 @@ public class GameplayPane extends BorderPane {
      */
     private void styleComponents() {
         this.canvasContainer.getStyleClass().add("big-hbox");
+        this.loadingIndicator.visibleProperty().bind(LevelProperties.getInstance().loadingProperty());
+        this.loadingIndicator.managedProperty().bind(this.loadingIndicator.visibleProperty());
         this.buttonBar.getChildren().stream().filter(Button.class::isInstance).forEach(node -> node.getStyleClass().add("big-button"));
         this.buttonBar.getStyleClass().add("bottom-menu");
     }
@@ -73,47 +110,147 @@ public class GameplayPane extends BorderPane {
     /**
      * Set the event handlers for the 2 buttons.
      * <p>
-     * Also listens for key presses (w, a, s, d), whichmove the character.
+     * Also listens for key presses (w, a, s, d), whichmove the character, and z/y, which undo/redo a move, and for
+     * clicks on the canvas, which walk the character to the clicked cell.
      * <p>
      * Hint: {@link GameplayPane#setOnKeyPressed(EventHandler)}  is needed.
-     * You will need to make the move, rerender the canvas, play the sound (if the move was made), and detect
-     * for win and deadlock conditions. If win, play the win sound, and do the appropriate action regarding the timers
-     * and generating the popups. If deadlock, play the deadlock sound, and do the appropriate action regarding the timers
-     * and generating the popups.
+     * Key presses are only queued here; {@link #applyQueuedInput(boolean)} makes the moves on the next pulse, so that a
+     * held key or fast typing costs one render per frame rather than one per key event.
      */
     private void setCallbacks() {
         this.restartButton.setOnAction(actionEvent -> this.doRestartAction());
         this.quitToMenuButton.setOnAction(object -> this.doQuitToMenuAction());
         this.setOnKeyPressed(keyInput -> {
-            switch (keyInput.getCode()) {
-                case W: {
-                    LevelManager.getInstance().getGameLevel().makeMove('w');
-                    break;
-                }
-                case A: {
-                    LevelManager.getInstance().getGameLevel().makeMove('a');
-                    break;
-                }
-                case S: {
-                    LevelManager.getInstance().getGameLevel().makeMove('s');
-                    break;
-                }
-                case D: {
-                    LevelManager.getInstance().getGameLevel().makeMove('d');
-                }
-            }
-            AudioManager.getInstance().playMoveSound();
-            this.renderCanvas();
-            if (LevelManager.getInstance().getGameLevel().isWin()) {
-                AudioManager.getInstance().playWinSound();
-                this.createLevelClearPopup();
-            } else {
-                if (LevelManager.getInstance().getGameLevel().isDeadlocked()) {
-                    AudioManager.getInstance().playDeadlockSound();
-                    this.createDeadlockedPopup();
-                }
-            }
+            //the map is about to be replaced, moves on it would be lost
+            if (LevelManager.getInstance().isLoading())
+                return;
+            char key = toMoveKey(keyInput.getCode());
+            if (key != 0 && this.inputQueue.press(key, System.nanoTime()))
+                this.inputTimer.start();
         });
+        this.gamePlayCanvas.setOnMouseClicked(mouseEvent -> this.walkTo(mouseEvent.getX(), mouseEvent.getY()));
+        this.setOnKeyReleased(keyInput -> {
+            char key = toMoveKey(keyInput.getCode());
+            if (key != 0)
+                this.inputQueue.release(key);
+        });
+    }
+
+    /**
+     * @return The key passed to {@link GameLevel#makeMove(char)}, z/y for undo/redo, or 0 for any other key
+     */
+    private static char toMoveKey(KeyCode code) {
+        switch (code) {
+            case W:
+                return 'w';
+            case A:
+                return 'a';
+            case S:
+                return 's';
+            case D:
+                return 'd';
+            case Z:
+                return 'z';
+            case Y:
+                return 'y';
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Called by the input timer once per pulse while keys are queued. Applies all of them, then plays the move
+     * sound and rerenders the canvas once if any of them changed the level, and checks for win and deadlock after
+     * each one that did. Keys queued after a win or deadlock are dropped. The popups are shown after the pulse, as
+     * dialogs cannot wait during an animation.
+     *
+     * @param inPulse Whether this is called during a pulse rather than from an event handler
+     * @return Whether the keys won or deadlocked the level
+     */
+    private boolean applyQueuedInput(boolean inPulse) {
+        if (this.inputQueue.isEmpty())
+            return false;
+        if (LevelManager.getInstance().isLoading()) {
+            this.inputQueue.clear();
+            return false;
+        }
+        GameLevel level = LevelManager.getInstance().getGameLevel();
+        long pressNanos = this.inputQueue.peekPressNanos();
+        boolean changed = false;
+        boolean win = false;
+        boolean deadlocked = false;
+        while (!this.inputQueue.isEmpty()) {
+            char key = this.inputQueue.poll();
+            boolean done = key == 'z' ? level.undo() : key == 'y' ? level.redo() : level.makeMove(key);
+            if (!done)
+                continue;
+            changed = true;
+            win = level.isWin();
+            deadlocked = !win && level.isDeadlocked();
+            if (win || deadlocked) {
+                this.inputQueue.clear();
+                break;
+            }
+        }
+        if (!changed)
+            return false;
+        AudioManager.getInstance().playMoveSound();
+        this.renderCanvas();
+        this.timeLatency(pressNanos, inPulse);
+        if (win) {
+            AudioManager.getInstance().playWinSound();
+            Platform.runLater(this::createLevelClearPopup);
+        } else if (deadlocked) {
+            AudioManager.getInstance().playDeadlockSound();
+            Platform.runLater(this::createDeadlockedPopup);
+        }
+        return win || deadlocked;
+    }
+
+    /**
+     * Walks the player to the clicked cell along a shortest path which pushes no crate, if there is one. The whole
+     * walk is made at once, so the canvas is rerendered once however long it is. As nothing is pushed, the walk can
+     * neither win nor deadlock the level.
+     * <p>
+     * Keys still waiting for the next pulse are applied first, so that the walk starts where they leave the player.
+     *
+     * @param x Mouse click coordinate x on the canvas
+     * @param y Mouse click coordinate y on the canvas
+     */
+    private void walkTo(double x, double y) {
+        long clickNanos = System.nanoTime();
+        if (LevelManager.getInstance().isLoading())
+            return;
+        if (this.applyQueuedInput(false))
+            return;
+        GameLevel level = LevelManager.getInstance().getGameLevel();
+        if (level.walkTo(this.viewport.rowAt(y), this.viewport.colAt(x)) == 0)
+            return;
+        AudioManager.getInstance().playMoveSound();
+        this.renderCanvas();
+        this.timeLatency(clickNanos, false);
+    }
+
+    /**
+     * Starts timing the latency of an input whose change has just been drawn to the canvas. The canvas is only put on
+     * screen at the end of a pulse, so the time is taken at the start of the pulse after that: the next one when
+     * drawn during a pulse, otherwise the one after.
+     *
+     * @param startNanos The {@link System#nanoTime()} of the input
+     * @param inPulse    Whether the canvas was drawn during a pulse rather than from an event handler
+     */
+    private void timeLatency(long startNanos, boolean inPulse) {
+        this.latencyStartNanos = startNanos;
+        this.latencyPulses = inPulse ? 1 : 2;
+        this.inputTimer.start();
+    }
+
+    /**
+     * @return The time in milliseconds from the oldest key press applied in the last frame which changed the level,
+     * or from the last click which walked the player, until the pulse after the change was put on screen
+     */
+    public ReadOnlyDoubleProperty inputLatencyProperty() {
+        return this.inputLatency.getReadOnlyProperty();
     }
 
     /**
@@ -151,13 +288,9 @@ public class GameplayPane extends BorderPane {
         if (response.get() == returnBtn) {
             SceneManager.getInstance().showMainMenuScene();
             LevelManager.getInstance().resetNumRestarts();
-            return;
         } else if (response.get() == restartBtn) {
             this.doRestartAction();
-        } else {
-            return;
         }
-        this.renderCanvas();
     }
 
     /**
@@ -185,15 +318,18 @@ public class GameplayPane extends BorderPane {
         if (response.get() == returnBtn) {
             this.doQuitToMenuAction();
         } else if (response.get() == nextLevelBtn) {
-            try {
-                LevelManager.getInstance().setLevel(LevelManager.getInstance().getNextLevelName());
-                this.renderCanvas();
-                LevelManager.getInstance().resetNumRestarts();
-                LevelManager.getInstance().resetLevelTimer();
-                LevelManager.getInstance().startLevelTimer();
-            } catch (InvalidMapException e) {
-                e.printStackTrace();
-            }
+            LevelManager.getInstance().resetLevelTimer();
+            LevelManager.getInstance().setLevelAsync(LevelManager.getInstance().getNextLevelName())
+                    .whenComplete((ignored, e) -> {
+                        if (e != null) {
+                            if (!LevelManager.isSuperseded(e))
+                                e.printStackTrace();
+                            return;
+                        }
+                        this.renderCanvas();
+                        LevelManager.getInstance().resetNumRestarts();
+                        LevelManager.getInstance().startLevelTimer();
+                    });
         }
     }
 
@@ -203,22 +339,30 @@ public class GameplayPane extends BorderPane {
      */
     private void doRestartAction() {
         LevelManager.getInstance().resetLevelTimer();
-        LevelManager.getInstance().startLevelTimer();
         LevelManager.getInstance().incrementNumRestarts();
-        try {
-            LevelManager.getInstance().setLevel(LevelManager.getInstance().currentLevelNameProperty().get());
-        } catch (InvalidMapException e) {
-            e.printStackTrace();
-        }
-        this.renderCanvas();
+        LevelManager.getInstance().setLevelAsync(LevelManager.getInstance().getCurrentLevelName())
+                .whenComplete((ignored, e) -> {
+                    if (e != null) {
+                        if (!LevelManager.isSuperseded(e))
+                            e.printStackTrace();
+                        return;
+                    }
+                    this.renderCanvas();
+                    LevelManager.getInstance().startLevelTimer();
+                });
     }
 
     /**
-     * Render the canvas with updated data
+     * Render the canvas with updated data. The viewport follows the player, and only the cells changed by the last
+     * moves are redrawn unless the camera moved or a level was (re)loaded.
      * <p>
      * Hint: {@link MapRenderer}
      */
     private void renderCanvas() {
-        MapRenderer.render(this.gamePlayCanvas, LevelManager.getInstance().getGameLevel().getMap().getCells());
+        Map map = LevelManager.getInstance().getGameLevel().getMap();
+        boolean newMap = map.isAllDirty();
+        this.viewport.setWorldSize(map.getRows(), map.getCols());
+        this.viewport.follow(map.getPlayerR(), map.getPlayerC(), !newMap);
+        MapRenderer.renderDirty(this.viewport, map);
     }
 }
@@ -3,16 +3,21 @@ package viewmodel.panes;
 import javafx.geometry.Pos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.Button;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
+import javafx.scene.control.ProgressIndicator;
+import javafx.scene.control.Tooltip;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.VBox;
 import javafx.stage.DirectoryChooser;
-import model.Exceptions.InvalidMapException;
 import model.LevelManager;
-import model.Map.Cell;
+import model.LevelValidator;
 import viewmodel.Config;
-import viewmodel.MapRenderer;
+import viewmodel.LevelProperties;
 import viewmodel.SceneManager;
+import viewmodel.ThumbnailService;
 
 import java.io.File;
 
@@ -29,6 +34,9 @@ public class LevelSelectPane extends BorderPane {
     private ListView<String> levelsListView;
     private VBox centerContainer;
     private Canvas levelPreview;
+    private ProgressIndicator loadingIndicator;
+    //thumbnail being rendered for the preview, cancelled when the selection moves on
+    private ThumbnailService.Request previewRequest;
 
     /**
      * Instantiate the member components and connect and style them. Also set the callbacks.
@@ -42,6 +50,7 @@ public class LevelSelectPane extends BorderPane {
         this.levelsListView = new ListView<>();
         this.centerContainer = new VBox(20.0);
         this.levelPreview = new Canvas();
+        this.loadingIndicator = new ProgressIndicator();
         this.connectComponents();
         this.styleComponents();
         this.setCallbacks();
@@ -58,7 +67,7 @@ public class LevelSelectPane extends BorderPane {
                 this.levelsListView,
                 this.playButton
         );
-        this.centerContainer.getChildren().add(this.levelPreview);
+        this.centerContainer.getChildren().addAll(this.loadingIndicator, this.levelPreview);
         this.setLeft(this.leftContainer);
         this.setCenter(this.centerContainer);
     }
@@ -70,8 +79,11 @@ public class LevelSelectPane extends BorderPane {
         this.leftContainer.getChildren().stream().filter(Button.class::isInstance).forEach(node -> node.getStyleClass().add("big-button"));
         this.leftContainer.getStyleClass().addAll("side-menu", "big-vbox");
         this.levelsListView.setPrefSize(150.0, 300.0);
+        this.levelsListView.setCellFactory(listView -> new ThumbnailCell());
         this.centerContainer.getStyleClass().add("big-vbox");
         this.centerContainer.setAlignment(Pos.CENTER);
+        this.loadingIndicator.visibleProperty().bind(LevelProperties.getInstance().loadingProperty());
+        this.loadingIndicator.managedProperty().bind(this.loadingIndicator.visibleProperty());
         this.playButton.setDisable(true);
     }
 
@@ -83,35 +95,86 @@ public class LevelSelectPane extends BorderPane {
      * The chooseMapDir button should prompt the user to choose the map directory, and load the levels
      * The play button should set the current level based on the current level name (see LevelManager), show
      * the gameplay scene, and start the level timer.
-     * The listview, based on which item was clicked, should set the current level (see LevelManager), render the
-     * preview (see {@link MapRenderer#render(Canvas, Cell[][])}}, and set the play button to enabled.
+     * The listview, based on which item was clicked, should show the preview and set the play button to enabled.
+     * The preview is rendered in the background by {@link ThumbnailService}, so moving through the list never
+     * parses a map on the UI thread; the level itself is only loaded when the play button is pressed.
      */
     private void setCallbacks() {
         this.returnButton.setOnAction(actionEvent -> SceneManager.getInstance().showMainMenuScene());
         this.chooseMapDirButton.setOnAction(actionEvent -> this.promptUserForMapDirectory());
         this.levelsListView.getSelectionModel().selectedItemProperty().addListener((observable, oldValue, newValue) -> {
-            try {
-                if (newValue == null) {
-                    this.playButton.setDisable(true);
-                    return;
-                }
-                LevelManager.getInstance().setLevel(newValue.trim());
-                MapRenderer.render(this.levelPreview, LevelManager.getInstance().getGameLevel().getMap().getCells());
-                this.playButton.setDisable(false);
-            } catch (InvalidMapException ex) {
-                ex.printStackTrace();
-            }
+            if (this.previewRequest != null)
+                this.previewRequest.cancel();
+            this.playButton.setDisable(true);
+            if (newValue == null)
+                return;
+            this.previewRequest = ThumbnailService.getInstance().request(newValue.trim(),
+                    Config.PREVIEW_SIZE, Config.PREVIEW_SIZE, this::showPreview);
         });
         this.playButton.setOnAction(object -> {
-            try {
-                LevelManager.getInstance().setLevel(this.levelsListView.getSelectionModel().getSelectedItem());
-                SceneManager.getInstance().showGamePlayScene();
-                LevelManager.getInstance().startLevelTimer();
+            this.playButton.setDisable(true);
+            LevelManager.getInstance().setLevelAsync(this.levelsListView.getSelectionModel().getSelectedItem())
+                    .whenComplete((ignored, e) -> {
+                        this.playButton.setDisable(false);
+                        if (e == null) {
+                            SceneManager.getInstance().showGamePlayScene();
+                            LevelManager.getInstance().startLevelTimer();
+                        } else if (!LevelManager.isSuperseded(e)) {
+                            e.printStackTrace();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Draws the preview thumbnail, or clears the preview if the level is invalid
+     */
+    private void showPreview(Image thumbnail) {
+        var graphicsContext = this.levelPreview.getGraphicsContext2D();
+        graphicsContext.clearRect(0, 0, this.levelPreview.getWidth(), this.levelPreview.getHeight());
+        if (thumbnail == null)
+            return;
+        this.levelPreview.setWidth(thumbnail.getWidth());
+        this.levelPreview.setHeight(thumbnail.getHeight());
+        graphicsContext.drawImage(thumbnail, 0, 0);
+        this.playButton.setDisable(false);
+    }
 
-            } catch (InvalidMapException e) {
-                e.printStackTrace();
+    /**
+     * A level list entry showing a small thumbnail next to the level name. The thumbnail is requested when the cell
+     * is given a level, and the request is cancelled when the cell is reused for another level while scrolling.
+     * Once the level list has been validated, the cell is tagged as valid or invalid, with the error as tooltip.
+     */
+    private static class ThumbnailCell extends ListCell<String> {
+        private final ImageView thumbnailView = new ImageView();
+        private ThumbnailService.Request request;
+
+        @Override
+        protected void updateItem(String item, boolean empty) {
+            super.updateItem(item, empty);
+            if (this.request != null) {
+                this.request.cancel();
+                this.request = null;
             }
-        });
+            this.thumbnailView.setImage(null);
+            this.getStyleClass().removeAll("valid-level", "invalid-level");
+            this.setTooltip(null);
+            if (empty || item == null) {
+                this.setText(null);
+                this.setGraphic(null);
+                return;
+            }
+            LevelValidator.Result validation = LevelManager.getInstance().getValidation().get(item);
+            if (validation != null) {
+                this.getStyleClass().add(validation.isValid() ? "valid-level" : "invalid-level");
+                if (!validation.isValid())
+                    this.setTooltip(new Tooltip(validation.getError()));
+            }
+            this.setText(item);
+            this.setGraphic(this.thumbnailView);
+            int size = Config.LIST_CELL_HEIGHT;
+            this.request = ThumbnailService.getInstance().request(item.trim(), size, size, this.thumbnailView::setImage);
+        }
     }
 
     /**
@@ -127,7 +190,8 @@ public class LevelSelectPane extends BorderPane {
         if (mapDir != null) {
             LevelManager.getInstance().setMapDirectory(mapDir.getAbsolutePath());
             LevelManager.getInstance().loadLevelNamesFromDisk();
+            LevelManager.getInstance().validateLevelsAsync().thenRun(this.levelsListView::refresh);
         }
-        this.levelsListView.setItems(LevelManager.getInstance().getLevelNames());
+        this.levelsListView.setItems(LevelProperties.getInstance().getLevelNames());
     }
 }